@@ -15,26 +15,65 @@
  */
 package org.openrewrite;
 
+import org.openrewrite.internal.ListUtils;
 import org.openrewrite.internal.lang.Nullable;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 public class AbstractRefactorVisitor<T extends Tree> extends AbstractSourceVisitor<T> implements RefactorVisitor<T> {
-    private final ThreadLocal<List<RefactorVisitor<? extends T>>> andThen = new ThreadLocal<>();
+    /**
+     * Irrelevant subtrees smaller than this are not remembered, which keeps the memo small relative to the
+     * trees being visited while still covering the subtrees (class bodies, methods, blocks) that are worth skipping.
+     */
+    private static final int MIN_REMEMBERED_SUBTREE_SIZE = 32;
+
+    /**
+     * Whether to remember subtrees that this visitor has visited without changing them and without scheduling any
+     * follow-up visitors. Trees are immutable, so meeting the very same instance again means it is still irrelevant.
+     * They are remembered in the {@link RefactorContext}, for the rest of the current run only.
+     */
+    private boolean skipIrrelevantSubtrees;
+
+    /**
+     * Visitors scheduled while this visitor is used directly rather than as part of a {@link Refactor}, for the caller
+     * to run after it. Inside a {@link Refactor}, scheduled visitors are kept in the {@link RefactorContext} instead.
+     * Because this list belongs to the visitor, a visitor used outside of a {@link Refactor} must not be shared
+     * across threads.
+     */
+    @Nullable
+    private List<RefactorVisitor<? extends T>> andThenOutsideRefactor;
 
-    public AbstractRefactorVisitor() {
-        andThen.set(new ArrayList<>());
+    /**
+     * Skip subtrees that this visitor has already proven irrelevant on an earlier visit, which on the second and
+     * later cycles of a {@link Refactor} is most of every source file. Only turn this on for visitors whose outcome
+     * for a subtree depends on that subtree alone, and not for example on enclosing trees found through the cursor
+     * or on state accumulated from other subtrees.
+     */
+    protected void setSkipIrrelevantSubtreesOn() {
+        this.skipIrrelevantSubtrees = true;
     }
 
     /**
      * Used to build up pipelines of visitors.
      *
-     * @return Other visitors that are run after this one.
+     * @return Other visitors that are run after this one in the {@link RefactorContext} of the current run, or when
+     * this visitor is being used outside of a {@link Refactor}, the visitors it has scheduled since {@link #next()}.
      */
+    @SuppressWarnings("unchecked")
     public List<RefactorVisitor<? extends T>> andThen() {
-        return andThen.get();
+        RefactorContext context = RefactorContext.current();
+        if (context != null) {
+            return (List<RefactorVisitor<? extends T>>) (List<?>) context.getAndThen();
+        }
+        if (andThenOutsideRefactor == null) {
+            andThenOutsideRefactor = new ArrayList<>();
+        }
+        return andThenOutsideRefactor;
     }
 
     /**
@@ -43,7 +82,19 @@ public class AbstractRefactorVisitor<T extends Tree> extends AbstractSourceVisit
      * @param visitor The visitor to run after this visitor.
      */
     protected void andThen(RefactorVisitor<T> visitor) {
-        andThen.get().add(visitor);
+        andThen().add(visitor);
+    }
+
+    /**
+     * @deprecated A {@link Refactor} starts every visit with an empty pipeline in a new {@link RefactorContext}, so
+     * this is only needed to clear the visitors scheduled while this visitor is used outside of a {@link Refactor}.
+     */
+    @Deprecated
+    @Override
+    public void next() {
+        if (andThenOutsideRefactor != null) {
+            andThenOutsideRefactor.clear();
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -53,34 +104,38 @@ public class AbstractRefactorVisitor<T extends Tree> extends AbstractSourceVisit
 
     @SuppressWarnings("unchecked")
     protected <T1 extends Tree> T1 refactor(@Nullable Tree tree) {
-        return (T1) visit(tree);
-    }
+        if (!skipIrrelevantSubtrees || tree == null) {
+            return (T1) visit(tree);
+        }
 
-    protected <T1 extends Tree> List<T1> refactor(@Nullable List<T1> trees) {
-        if(trees == null) {
-            return null;
+        RefactorContext context = RefactorContext.current();
+        if (context == null) {
+            return (T1) visit(tree);
         }
 
-        List<T1> mutatedTrees = new ArrayList<>(trees.size());
-        boolean changed = false;
-        for (T1 tree : trees) {
-            T1 mutated = refactor(tree);
-            if(mutated != tree) {
-                changed = true;
-            }
-            mutatedTrees.add(mutated);
+        Map<UUID, WeakReference<Tree>> irrelevantSubtrees = context.getIrrelevantSubtrees(this);
+        WeakReference<Tree> irrelevant = irrelevantSubtrees.get(tree.getId());
+        if (irrelevant != null && irrelevant.get() == tree) {
+            return (T1) tree;
         }
 
-        return changed ? mutatedTrees : trees;
-    }
+        int sizeBefore = context.incrementVisitedTrees();
+        int andThenBefore = context.getAndThen().size();
 
-    public void next() {
-        synchronized (this) {
-            if (andThen.get() != null) {
-                andThen.get().clear();
-            } else {
-                andThen.set(new ArrayList<>());
+        T1 t = (T1) visit(tree);
+
+        if (t == tree && context.getAndThen().size() == andThenBefore) {
+            if (context.getVisitedTrees() - sizeBefore >= MIN_REMEMBERED_SUBTREE_SIZE) {
+                irrelevantSubtrees.put(tree.getId(), new WeakReference<>(tree));
             }
+        } else {
+            irrelevantSubtrees.remove(tree.getId());
         }
+
+        return t;
+    }
+
+    protected <T1 extends Tree> List<T1> refactor(@Nullable List<T1> trees) {
+        return ListUtils.map(trees, this::refactor);
     }
 }
@@ -28,6 +28,11 @@ public abstract class AbstractSourceVisitor<R> implements SourceVisitor<R> {
 
     private final ThreadLocal<Cursor> cursor = new ThreadLocal<>();
 
+    /**
+     * Only refactoring visitors are profiled by {@link Refactor}, so other visitors don't count the trees they visit.
+     */
+    private final boolean refactoring = this instanceof RefactorVisitor;
+
     protected void setCursoringOn() {
         this.cursored = true;
     }
@@ -54,16 +59,25 @@ public abstract class AbstractSourceVisitor<R> implements SourceVisitor<R> {
             return defaultTo(null);
         }
 
-        if (cursored) {
-            cursor.set(new Cursor(cursor.get(), tree));
+        if (refactoring) {
+            RefactorContext.countVisitedTree();
         }
 
-        R t = reduce(tree.accept(this), visitTree(tree));
-
-        if (cursored) {
-            cursor.set(cursor.get().getParent());
+        if (!cursored) {
+            return reduce(tree.accept(this), visitTree(tree));
         }
 
-        return t;
+        Cursor parent = cursor.get();
+        cursor.set(new Cursor(parent, tree));
+        try {
+            return reduce(tree.accept(this), visitTree(tree));
+        } finally {
+            // don't leave a cursor behind on pooled threads, which may visit with this visitor again later
+            if (parent == null) {
+                cursor.remove();
+            } else {
+                cursor.set(parent);
+            }
+        }
     }
 }
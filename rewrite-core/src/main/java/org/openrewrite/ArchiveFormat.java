@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The layout of an archive written by {@link ArchiveWriter}:
+ * <ol>
+ *     <li>A header of {@link #MAGIC}, {@link #VERSION} and the archive's {@link #FLAG_DEFLATED flags}.</li>
+ *     <li>Records, each a kind byte followed by a length and a Smile document. A {@link #TABLE_SEGMENT} record also
+ *     names its shared type before the length. The segment of shared values that a source adds to the tables comes
+ *     before the source, so the archive can be read front to back in a single pass.</li>
+ *     <li>An {@link #INDEX} record locating every source and table segment, so the archive can also be read in any order.</li>
+ *     <li>A trailer of the offset of the index document followed by {@link #MAGIC} again.</li>
+ * </ol>
+ */
+final class ArchiveFormat {
+    /**
+     * Distinguishes an archive from a plain Smile document, which always begins with ":)".
+     */
+    static final byte[] MAGIC = {'R', 'W', 'A', 'R'};
+
+    /**
+     * Version 2 serializes {@link Formatting} compactly rather than as an object.
+     */
+    static final int VERSION = 2;
+
+    /**
+     * Each document in the archive is compressed on its own, so that it can still be read without the others.
+     */
+    static final int FLAG_DEFLATED = 1;
+
+    static final int HEADER_LENGTH = MAGIC.length + 4 + 4;
+
+    static final int TRAILER_LENGTH = 8 + MAGIC.length;
+
+    static final byte SOURCE = 'S';
+    static final byte TABLE_SEGMENT = 'T';
+    static final byte INDEX = 'I';
+
+    private ArchiveFormat() {
+    }
+
+    static boolean isArchive(byte[] bytes) {
+        if (bytes.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static byte[] deflate(byte[] document) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(document);
+            deflater.finish();
+            ByteArrayOutputStream deflated = new ByteArrayOutputStream(document.length / 2 + 16);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                deflated.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return deflated.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] inflate(byte[] deflated) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(deflated);
+            ByteArrayOutputStream document = new ByteArrayOutputStream(deflated.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Archive document is truncated");
+                }
+                document.write(buffer, 0, n);
+            }
+            return document.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Archive document is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
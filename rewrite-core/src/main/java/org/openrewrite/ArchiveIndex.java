@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.Value;
+import org.openrewrite.internal.lang.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where each source and each segment of a shared value table is found in an archive written by {@link TreeSerializer}.
+ * The index is the last thing written to an archive, so appending to an archive means writing new sources and table
+ * segments after the old index and then a new index, which supersedes the old one.
+ */
+class ArchiveIndex {
+    private final boolean deflated;
+    private final List<Entry> sources;
+    private final List<Entry> tables;
+    private final Map<String, Integer> sourcesByName = new HashMap<>();
+
+    /**
+     * @param deflated Whether the archive's sources and table segments are compressed, which is recorded in the
+     *                 archive's header rather than its index.
+     */
+    ArchiveIndex(boolean deflated) {
+        this(deflated, new ArrayList<>(), new ArrayList<>());
+    }
+
+    private ArchiveIndex(boolean deflated, List<Entry> sources, List<Entry> tables) {
+        this.deflated = deflated;
+        this.sources = sources;
+        this.tables = tables;
+        for (int i = 0; i < sources.size(); i++) {
+            String name = sources.get(i).getName();
+            if (name != null) {
+                sourcesByName.put(name, i);
+            }
+        }
+    }
+
+    boolean isDeflated() {
+        return deflated;
+    }
+
+    List<Entry> getSources() {
+        return sources;
+    }
+
+    List<Entry> getTables() {
+        return tables;
+    }
+
+    /**
+     * Adds a source, superseding any source already in the index with the same name.
+     */
+    void putSource(@Nullable String name, long offset, int length) {
+        Entry entry = new Entry(name, offset, length);
+        Integer existing = name == null ? null : sourcesByName.get(name);
+        if (existing == null) {
+            if (name != null) {
+                sourcesByName.put(name, sources.size());
+            }
+            sources.add(entry);
+        } else {
+            sources.set(existing, entry);
+        }
+    }
+
+    void addTable(String sharedType, long offset, int length) {
+        tables.add(new Entry(sharedType, offset, length));
+    }
+
+    ArchiveIndex copy() {
+        return new ArchiveIndex(deflated, new ArrayList<>(sources), new ArrayList<>(tables));
+    }
+
+    void write(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("sources");
+        for (Entry source : sources) {
+            source.write(generator);
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("tables");
+        for (Entry table : tables) {
+            table.write(generator);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    static ArchiveIndex read(boolean deflated, JsonParser parser) throws IOException {
+        List<Entry> sources = new ArrayList<>();
+        List<Entry> tables = new ArrayList<>();
+        parser.nextToken();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            List<Entry> entries = "sources".equals(parser.getCurrentName()) ? sources : tables;
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                entries.add(Entry.read(parser));
+            }
+        }
+        return new ArchiveIndex(deflated, sources, tables);
+    }
+
+    @Value
+    static class Entry {
+        /**
+         * The name of a source, which is its source path unless the archive is keyed otherwise, or the class name of
+         * the shared type of a table segment.
+         */
+        @Nullable
+        String name;
+
+        long offset;
+        int length;
+
+        private void write(JsonGenerator generator) throws IOException {
+            generator.writeStartArray();
+            generator.writeString(name);
+            generator.writeNumber(offset);
+            generator.writeNumber(length);
+            generator.writeEndArray();
+        }
+
+        private static Entry read(JsonParser parser) throws IOException {
+            String name = parser.nextTextValue();
+            parser.nextToken();
+            long offset = parser.getLongValue();
+            parser.nextToken();
+            int length = parser.getIntValue();
+            parser.nextToken();
+            return new Entry(name, offset, length);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openrewrite.internal.lang.Nullable;
+
+import java.io.*;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the sources of an archive front to back from a stream, one at a time, holding nothing but the archive's shared
+ * value tables between sources. This suits consumers that visit every source once, however large the archive, and
+ * archives that can't be read in any order, such as one arriving over the network.
+ * <p>
+ * Every source is returned in the order it was written, including sources that a later append to the archive
+ * superseded.
+ *
+ * @param <S> The type of source file in the archive.
+ */
+public class ArchiveReader<S extends SourceFile> implements Iterator<S>, Closeable {
+    private final ObjectMapper mapper;
+    private final DataInputStream in;
+    private final boolean deflated;
+    private final SharedValueTables tables = new SharedValueTables();
+    private final ObjectReader sourceReader;
+
+    @Nullable
+    private S next;
+
+    private boolean done;
+
+    ArchiveReader(ObjectMapper mapper, ObjectReader sourceReader, InputStream in) throws IOException {
+        this.mapper = mapper;
+        this.in = new DataInputStream(in instanceof BufferedInputStream ? in : new BufferedInputStream(in));
+        this.sourceReader = sourceReader.withAttribute(SharedValueTables.class, tables);
+
+        byte[] magic = new byte[ArchiveFormat.MAGIC.length];
+        this.in.readFully(magic);
+        if (!ArchiveFormat.isArchive(magic)) {
+            throw new IOException("Not a source archive");
+        }
+        int version = this.in.readInt();
+        if (version != ArchiveFormat.VERSION) {
+            throw new IOException("Source archive version " + version + " can't be read by this version of rewrite");
+        }
+        this.deflated = (this.in.readInt() & ArchiveFormat.FLAG_DEFLATED) != 0;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (next == null && !done) {
+                int kind = in.read();
+                switch (kind) {
+                    case -1:
+                        done = true;
+                        break;
+                    case ArchiveFormat.TABLE_SEGMENT:
+                        String sharedType = in.readUTF();
+                        tables.readSegment(mapper, sharedType, readDocument(deflated));
+                        break;
+                    case ArchiveFormat.SOURCE:
+                        next = sourceReader.readValue(readDocument(deflated));
+                        break;
+                    case ArchiveFormat.INDEX:
+                        // an archive that has been appended to continues after the trailer of each superseded index
+                        readDocument(false);
+                        in.readFully(new byte[ArchiveFormat.TRAILER_LENGTH]);
+                        break;
+                    default:
+                        throw new IOException("Source archive is corrupt");
+                }
+            }
+            return next != null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public S next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        S source = next;
+        next = null;
+        return source;
+    }
+
+    private byte[] readDocument(boolean inflate) throws IOException {
+        byte[] document = new byte[in.readInt()];
+        in.readFully(document);
+        return inflate ? ArchiveFormat.inflate(document) : document;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
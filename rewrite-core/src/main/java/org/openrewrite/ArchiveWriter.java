@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openrewrite.internal.lang.Nullable;
+
+import java.io.*;
+
+/**
+ * Writes sources to an archive one at a time, as they are produced, so that a parser never needs to hold more than
+ * the source it is writing. Each source is preceded by the shared values it added to the archive's tables, so
+ * {@link ArchiveReader} can read the archive back one source at a time too. Closing the writer writes the archive's
+ * index and closes the underlying stream.
+ *
+ * @param <S> The type of source file in the archive.
+ */
+public class ArchiveWriter<S extends SourceFile> implements Closeable {
+    private final ObjectMapper mapper;
+    private final DataOutputStream out;
+    private final ArchiveIndex index;
+    private final SharedValueTables tables;
+    private final ObjectWriter sourceWriter;
+
+    private long position;
+    private boolean finished;
+
+    /**
+     * @param mapper   The mapper that serializes sources and shared values.
+     * @param out      The stream positioned after the old index of the archive, or after the header of a new archive.
+     * @param position The length of the archive so far.
+     * @param index    The index of the archive so far, which is updated with the written sources.
+     * @param tables   The shared value tables of the archive so far, which are updated with the values the written sources refer to.
+     */
+    ArchiveWriter(ObjectMapper mapper, OutputStream out, long position, ArchiveIndex index, SharedValueTables tables) {
+        this.mapper = mapper;
+        this.out = new DataOutputStream(out);
+        this.index = index;
+        this.tables = tables;
+        this.sourceWriter = mapper.writer().withAttribute(SharedValueTables.class, tables);
+        this.position = position;
+    }
+
+    public void write(S source) {
+        write(source.getSourcePath(), source);
+    }
+
+    /**
+     * @param name   The name the archive's index locates the source by, superseding any source with the same name.
+     * @param source The source.
+     */
+    void write(@Nullable String name, S source) {
+        if (finished) {
+            throw new IllegalStateException("The archive has already been finished");
+        }
+        try {
+            byte[] serialized = sourceWriter.writeValueAsBytes(source);
+
+            for (Class<?> sharedType : tables.getSharedTypes()) {
+                byte[] segment = tables.writeSegment(mapper, sharedType);
+                if (segment == null) {
+                    continue;
+                }
+
+                byte[] stored = store(segment);
+                long offset = writeRecord(ArchiveFormat.TABLE_SEGMENT, sharedType.getName(), stored);
+                index.addTable(sharedType.getName(), offset, stored.length);
+            }
+
+            byte[] stored = store(serialized);
+            long offset = writeRecord(ArchiveFormat.SOURCE, null, stored);
+            index.putSource(name, offset, stored.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void writeAll(Iterable<S> sources) {
+        for (S source : sources) {
+            write(source);
+        }
+    }
+
+    /**
+     * Writes the index and trailer of the archive, leaving the underlying stream open.
+     *
+     * @return The length of the archive.
+     */
+    long finish() throws IOException {
+        if (!finished) {
+            finished = true;
+
+            ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+            try (JsonGenerator indexGenerator = mapper.getFactory().createGenerator(indexBytes)) {
+                index.write(indexGenerator);
+            }
+            long indexOffset = writeRecord(ArchiveFormat.INDEX, null, indexBytes.toByteArray());
+            out.writeLong(indexOffset);
+            out.write(ArchiveFormat.MAGIC);
+            out.flush();
+            position += ArchiveFormat.TRAILER_LENGTH;
+        }
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private byte[] store(byte[] document) {
+        return index.isDeflated() ? ArchiveFormat.deflate(document) : document;
+    }
+
+    /**
+     * Writes the kind of a record, the shared type it is a table segment of if it is one, the length of its document
+     * and then the document.
+     *
+     * @return The offset of the document in the archive.
+     */
+    private long writeRecord(byte kind, @Nullable String sharedType, byte[] document) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream(16);
+        DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeByte(kind);
+        if (sharedType != null) {
+            headerData.writeUTF(sharedType);
+        }
+        headerData.writeInt(document.length);
+        header.writeTo(out);
+        out.write(document);
+
+        long documentOffset = position + header.size();
+        position = documentOffset + document.length;
+        return documentOffset;
+    }
+}
@@ -16,24 +16,41 @@
 package org.openrewrite;
 
 import com.fasterxml.jackson.annotation.*;
-import com.koloboke.collect.map.hash.HashObjObjMaps;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.std.DelegatingDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import lombok.AccessLevel;
 import lombok.Getter;
+import org.openrewrite.internal.ListUtils;
 import org.openrewrite.internal.lang.Nullable;
 
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * The stylistic surroundings of a tree element
+ * The stylistic surroundings of a tree element.
+ * <p>
+ * In a source archive, a formatting is written as a single number encoding its layout if it is only a few line breaks
+ * followed by indentation, and otherwise as its prefix, or its prefix and suffix when it has a suffix. Everywhere else
+ * it is written as an object with Jackson object ids, as it always has been.
  */
 @JsonIdentityInfo(generator = ObjectIdGenerators.IntSequenceGenerator.class, property = "@ref")
 @Getter
 public class Formatting implements Serializable {
+    private static final int MAX_LAYOUT_LINE_BREAKS = 7;
+    private static final int LAYOUT_TABS = 8;
+    private static final int LAYOUT_INDENT_SHIFT = 4;
+
     // suffixes are uncommon, so we'll treat them as a secondary index
-    private static final Map<String, Map<String, Formatting>> flyweights = HashObjObjMaps.newMutableMap();
+    private static final Map<String, Map<String, Formatting>> flyweights = new ConcurrentHashMap<>();
 
     public static Formatting EMPTY = new Formatting("", "") {
         @Override
@@ -45,9 +62,18 @@ public class Formatting implements Serializable {
     private final String prefix;
     private final String suffix;
 
+    /**
+     * A non-negative number encoding this formatting if it has no suffix and its prefix is only line breaks followed by
+     * spaces or tabs, otherwise -1. The lowest bits count the line breaks, the next bit is set for tabs, and the
+     * remaining bits count the spaces or tabs.
+     */
+    @Getter(AccessLevel.NONE)
+    private final int layout;
+
     private Formatting(String prefix, String suffix) {
         this.prefix = prefix;
         this.suffix = suffix;
+        this.layout = suffix.isEmpty() ? layout(prefix) : -1;
     }
 
     public static Formatting format(String prefix) {
@@ -56,15 +82,41 @@ public class Formatting implements Serializable {
 
     @JsonCreator
     public static Formatting format(@JsonProperty("prefix") String prefix, @JsonProperty("suffix") String suffix) {
-        synchronized (flyweights) {
-            if (prefix.isEmpty() && suffix.isEmpty()) {
-                return EMPTY;
-            }
+        if (prefix.isEmpty() && suffix.isEmpty()) {
+            return EMPTY;
+        }
+
+        return flyweights
+                .computeIfAbsent(prefix, p -> new ConcurrentHashMap<>())
+                .computeIfAbsent(suffix, s -> new Formatting(prefix, s));
+    }
 
-            return flyweights
-                    .computeIfAbsent(prefix, p -> HashObjObjMaps.newMutableMap())
-                    .computeIfAbsent(suffix, s -> new Formatting(prefix, s));
+    private static int layout(String prefix) {
+        int lineBreaks = 0;
+        while (lineBreaks < prefix.length() && prefix.charAt(lineBreaks) == '\n') {
+            lineBreaks++;
         }
+        if (lineBreaks > MAX_LAYOUT_LINE_BREAKS) {
+            return -1;
+        }
+
+        int indent = prefix.length() - lineBreaks;
+        boolean tabs = indent > 0 && prefix.charAt(lineBreaks) == '\t';
+        for (int i = lineBreaks; i < prefix.length(); i++) {
+            if (prefix.charAt(i) != (tabs ? '\t' : ' ')) {
+                return -1;
+            }
+        }
+        return indent << LAYOUT_INDENT_SHIFT | (tabs ? LAYOUT_TABS : 0) | lineBreaks;
+    }
+
+    private static Formatting fromLayout(int layout) {
+        int indent = layout >>> LAYOUT_INDENT_SHIFT;
+        int lineBreaks = layout & MAX_LAYOUT_LINE_BREAKS;
+        char[] prefix = new char[lineBreaks + indent];
+        Arrays.fill(prefix, 0, lineBreaks, '\n');
+        Arrays.fill(prefix, lineBreaks, prefix.length, (layout & LAYOUT_TABS) == 0 ? ' ' : '\t');
+        return format(new String(prefix));
     }
 
     @Override
@@ -149,27 +201,11 @@ public class Formatting implements Serializable {
     }
 
     public static <T extends Tree> List<T> formatFirstPrefix(@Nullable List<T> trees, String prefix) {
-        if (trees == null) {
-            return null;
-        }
-        if (!trees.isEmpty()) {
-            List<T> formattedTrees = new ArrayList<>(trees);
-            formattedTrees.set(0, formattedTrees.get(0).withPrefix(prefix));
-            return formattedTrees;
-        }
-        return trees;
+        return ListUtils.mapFirst(trees, t -> t.getPrefix().equals(prefix) ? t : t.withPrefix(prefix));
     }
 
     public static <T extends Tree> List<T> formatLastSuffix(@Nullable List<T> trees, String suffix) {
-        if (trees == null) {
-            return null;
-        }
-        if (!trees.isEmpty()) {
-            List<T> formattedTrees = new ArrayList<>(trees);
-            formattedTrees.set(formattedTrees.size() - 1, formattedTrees.get(formattedTrees.size() - 1).withSuffix(suffix));
-            return formattedTrees;
-        }
-        return trees;
+        return ListUtils.mapLast(trees, t -> t.getSuffix().equals(suffix) ? t : t.withSuffix(suffix));
     }
 
     public static <T extends Tree> T stripSuffix(@Nullable T t) {
@@ -179,4 +215,117 @@ public class Formatting implements Serializable {
     public static <T extends Tree> T stripPrefix(@Nullable T t) {
         return t == null ? null : t.withPrefix("");
     }
+
+    /**
+     * @return A module to register on the mapper used for archives, which writes formatting compactly while the
+     * {@link SharedValueTables} of an archive are set as an attribute of the serialization.
+     */
+    static SimpleModule archiveModule() {
+        SimpleModule module = new SimpleModule();
+        module.setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc,
+                                                      JsonSerializer<?> serializer) {
+                return Formatting.class.isAssignableFrom(beanDesc.getBeanClass()) ?
+                        new ArchiveSerializer(serializer) : serializer;
+            }
+        });
+        module.setDeserializerModifier(new BeanDeserializerModifier() {
+            @Override
+            public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, BeanDescription beanDesc,
+                                                          JsonDeserializer<?> deserializer) {
+                return Formatting.class.isAssignableFrom(beanDesc.getBeanClass()) ?
+                        new ArchiveDeserializer(deserializer) : deserializer;
+            }
+        });
+        return module;
+    }
+
+    /**
+     * Every formatting is written on its own rather than as a reference to an earlier occurrence, so that it reads the
+     * same whatever order Jackson deserializes properties in. Smile already shares repeated strings within a document.
+     */
+    private static class ArchiveSerializer extends JsonSerializer<Formatting> implements ContextualSerializer, ResolvableSerializer {
+        private final JsonSerializer<Object> delegate;
+
+        @SuppressWarnings("unchecked")
+        private ArchiveSerializer(JsonSerializer<?> delegate) {
+            this.delegate = (JsonSerializer<Object>) delegate;
+        }
+
+        @Override
+        public void serialize(Formatting formatting, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            if (serializers.getAttribute(SharedValueTables.class) == null) {
+                delegate.serialize(formatting, gen, serializers);
+            } else if (formatting == EMPTY) {
+                gen.writeNumber(0);
+            } else if (formatting.layout >= 0) {
+                gen.writeNumber(formatting.layout);
+            } else if (formatting.suffix.isEmpty()) {
+                gen.writeString(formatting.prefix);
+            } else {
+                gen.writeStartArray();
+                gen.writeString(formatting.prefix);
+                gen.writeString(formatting.suffix);
+                gen.writeEndArray();
+            }
+        }
+
+        @Override
+        public JsonSerializer<?> createContextual(SerializerProvider prov, BeanProperty property) throws JsonMappingException {
+            return delegate instanceof ContextualSerializer ?
+                    new ArchiveSerializer(((ContextualSerializer) delegate).createContextual(prov, property)) :
+                    this;
+        }
+
+        @Override
+        public void resolve(SerializerProvider provider) throws JsonMappingException {
+            if (delegate instanceof ResolvableSerializer) {
+                ((ResolvableSerializer) delegate).resolve(provider);
+            }
+        }
+
+        @Override
+        public boolean usesObjectId() {
+            return delegate.usesObjectId();
+        }
+
+        @Override
+        public Class<Formatting> handledType() {
+            return Formatting.class;
+        }
+    }
+
+    private static class ArchiveDeserializer extends DelegatingDeserializer {
+        private ArchiveDeserializer(JsonDeserializer<?> delegate) {
+            super(delegate);
+        }
+
+        @Override
+        protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+            return new ArchiveDeserializer(newDelegatee);
+        }
+
+        @Override
+        public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (ctxt.getAttribute(SharedValueTables.class) == null) {
+                return super.deserialize(p, ctxt);
+            }
+
+            switch (p.currentToken()) {
+                case VALUE_NUMBER_INT:
+                    int layout = p.getIntValue();
+                    return layout == 0 ? EMPTY : fromLayout(layout);
+                case VALUE_STRING:
+                    return format(p.getText());
+                case START_ARRAY:
+                    String prefix = p.nextTextValue();
+                    String suffix = p.nextTextValue();
+                    p.nextToken();
+                    return format(prefix, suffix);
+                default:
+                    return ctxt.handleUnexpectedToken(Formatting.class, p);
+            }
+        }
+    }
 }
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite;
+
+import org.openrewrite.internal.lang.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The sources of an archive written by {@link TreeSerializer#writeArchive(Iterable, java.io.OutputStream)}. Only the
+ * archive's index is read up front. Each source is deserialized when it is first accessed and is then only softly
+ * held, so iterating over every source in the archive needs no more heap than the sources the caller holds on to.
+ *
+ * @param <S> The type of source file in the archive.
+ */
+public class LazySourceFiles<S extends SourceFile> extends AbstractList<S> implements RandomAccess, Closeable {
+    /**
+     * Small enough batches that threads finishing early pick up more work, large enough to keep scheduling cheap.
+     */
+    private static final int BATCHES_PER_READ_ALL = 64;
+
+    private final List<String> sourcePaths;
+    private final long[] offsets;
+    private final int[] lengths;
+    private final Chunks chunks;
+    private final Deserializer<S> deserializer;
+    private final AtomicReferenceArray<SoftReference<S>> materialized;
+
+    @Nullable
+    private volatile Map<String, Integer> indicesBySourcePath;
+
+    LazySourceFiles(List<ArchiveIndex.Entry> sources, Chunks chunks, Deserializer<S> deserializer) {
+        this(new ArrayList<>(sources.size()), new long[sources.size()], new int[sources.size()], chunks, deserializer);
+        for (int i = 0; i < sources.size(); i++) {
+            ArchiveIndex.Entry source = sources.get(i);
+            sourcePaths.add(source.getName());
+            offsets[i] = source.getOffset();
+            lengths[i] = source.getLength();
+        }
+    }
+
+    private LazySourceFiles(List<String> sourcePaths, long[] offsets, int[] lengths, Chunks chunks,
+                            Deserializer<S> deserializer) {
+        this.sourcePaths = sourcePaths;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.chunks = chunks;
+        this.deserializer = deserializer;
+        this.materialized = new AtomicReferenceArray<>(offsets.length);
+    }
+
+    @Override
+    public S get(int index) {
+        SoftReference<S> ref = materialized.get(index);
+        S source = ref == null ? null : ref.get();
+        if (source == null) {
+            try {
+                source = deserializer.deserialize(chunks.read(offsets[index], lengths[index]));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            materialized.set(index, new SoftReference<>(source));
+        }
+        return source;
+    }
+
+    /**
+     * Deserializes every source in the archive, dividing them into batches that the threads of an executor deserialize
+     * at the same time. Unlike iterating over the archive, the returned sources are strongly held.
+     *
+     * @param executor The executor to deserialize batches of sources on.
+     * @return Every source in the archive, in archive order.
+     */
+    public List<S> readAll(ExecutorService executor) {
+        int batchSize = Math.max(1, size() / BATCHES_PER_READ_ALL);
+        List<Future<?>> batches = new ArrayList<>();
+        AtomicReferenceArray<S> sources = new AtomicReferenceArray<>(size());
+        for (int start = 0; start < sources.length(); start += batchSize) {
+            int from = start;
+            int to = Math.min(sources.length(), start + batchSize);
+            batches.add(executor.submit(() -> {
+                for (int i = from; i < to; i++) {
+                    sources.set(i, get(i));
+                }
+            }));
+        }
+
+        try {
+            for (Future<?> batch : batches) {
+                batch.get();
+            }
+        } catch (InterruptedException e) {
+            batches.forEach(batch -> batch.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading sources", e);
+        } catch (ExecutionException e) {
+            batches.forEach(batch -> batch.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Unable to read sources", e.getCause());
+        }
+
+        List<S> all = new ArrayList<>(sources.length());
+        for (int i = 0; i < sources.length(); i++) {
+            all.add(sources.get(i));
+        }
+        return all;
+    }
+
+    /**
+     * @param index The position of a source in the archive.
+     * @return The source path of that source, read from the index without deserializing the source.
+     */
+    public String getSourcePath(int index) {
+        return sourcePaths.get(index);
+    }
+
+    /**
+     * @param sourcePath The source path of a source.
+     * @return The source, or {@code null} if the archive has no source at that path.
+     */
+    @Nullable
+    public S get(String sourcePath) {
+        int index = indexOfSourcePath(sourcePath);
+        return index < 0 ? null : get(index);
+    }
+
+    int indexOfSourcePath(String sourcePath) {
+        Map<String, Integer> indices = indicesBySourcePath;
+        if (indices == null) {
+            indices = new HashMap<>();
+            for (int i = 0; i < sourcePaths.size(); i++) {
+                indices.put(sourcePaths.get(i), i);
+            }
+            indicesBySourcePath = indices;
+        }
+        return indices.getOrDefault(sourcePath, -1);
+    }
+
+    /**
+     * @param names       The names that sources are indexed by in this archive, such as content hashes.
+     * @param sourcePaths The source path to report for each selected source.
+     * @return A view of the named sources that reads them from this archive. Closing the view doesn't close this archive.
+     */
+    LazySourceFiles<S> select(List<String> names, List<String> sourcePaths) {
+        long[] selectedOffsets = new long[names.size()];
+        int[] selectedLengths = new int[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            int index = indexOfSourcePath(names.get(i));
+            if (index < 0) {
+                throw new IllegalArgumentException("No source named " + names.get(i));
+            }
+            selectedOffsets[i] = offsets[index];
+            selectedLengths[i] = lengths[index];
+        }
+        return new LazySourceFiles<>(new ArrayList<>(sourcePaths), selectedOffsets, selectedLengths, chunks::read,
+                deserializer);
+    }
+
+    /**
+     * @return The source paths of every source in the archive, in archive order.
+     */
+    public List<String> getSourcePaths() {
+        return sourcePaths;
+    }
+
+    @Override
+    public int size() {
+        return sourcePaths.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        chunks.close();
+    }
+
+    /**
+     * Positional reads of serialized sources from wherever the archive is stored.
+     */
+    interface Chunks extends Closeable {
+        byte[] read(long offset, int length) throws IOException;
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    interface Deserializer<S> {
+        S deserialize(byte[] bytes) throws IOException;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs a read-only visitor over many sources at once, on the threads of a {@link ForkJoinPool}. The sources are
+ * divided into batches, each batch is visited on one thread the way {@link SourceVisitor#visit(List)} visits it, and
+ * the results of batches are combined with the visitor's {@link SourceVisitor#reduce(Object, Object)} in the order
+ * of the sources, so the result is the same as visiting the sources serially as long as {@code reduce} is associative.
+ * <p>
+ * One visitor instance is shared by every thread, so it must not keep state of its own between the trees it visits.
+ * The cursor of an {@link AbstractSourceVisitor} is kept separately for each thread, so cursored visitors are safe to
+ * share.
+ */
+public class ParallelSearch {
+    /**
+     * Fewer sources than this are not worth dividing further.
+     */
+    private static final int MIN_BATCH_SIZE = 4;
+
+    private ParallelSearch() {
+    }
+
+    /**
+     * @param visitor A visitor that doesn't keep state between the trees it visits.
+     * @param sources The sources to visit.
+     * @param <R>     The type of result of the visitor.
+     * @return The results of visiting each source, reduced in the order of the sources.
+     */
+    public static <R> R visit(SourceVisitor<R> visitor, List<? extends Tree> sources) {
+        return visit(visitor, sources, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param visitor A visitor that doesn't keep state between the trees it visits.
+     * @param sources The sources to visit.
+     * @param pool    The pool to visit sources on.
+     * @param <R>     The type of result of the visitor.
+     * @return The results of visiting each source, reduced in the order of the sources.
+     */
+    public static <R> R visit(SourceVisitor<R> visitor, List<? extends Tree> sources, ForkJoinPool pool) {
+        if (sources.isEmpty()) {
+            return visitor.defaultTo(null);
+        }
+        int batchSize = Math.max(MIN_BATCH_SIZE, sources.size() / (pool.getParallelism() * 4));
+        return pool.invoke(new Batch<>(visitor, sources, batchSize));
+    }
+
+    private static class Batch<R> extends RecursiveTask<R> {
+        private final SourceVisitor<R> visitor;
+        private final List<? extends Tree> sources;
+        private final int batchSize;
+
+        private Batch(SourceVisitor<R> visitor, List<? extends Tree> sources, int batchSize) {
+            this.visitor = visitor;
+            this.sources = sources;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        protected R compute() {
+            if (sources.size() <= batchSize) {
+                return visitor.visit(sources);
+            }
+
+            int middle = sources.size() / 2;
+            Batch<R> right = new Batch<>(visitor, sources.subList(middle, sources.size()), batchSize);
+            right.fork();
+            R left = new Batch<>(visitor, sources.subList(0, middle), batchSize).compute();
+            return visitor.reduce(left, right.join());
+        }
+    }
+}
@@ -25,7 +25,9 @@ import org.openrewrite.internal.lang.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -41,6 +43,25 @@ public class Refactor {
     private MeterRegistry meterRegistry = Metrics.globalRegistry;
     private final boolean eagerlyThrow;
 
+    /**
+     * Looking a meter up in the registry builds and filters its id and hashes its tags, which can cost more than a
+     * cheap visitor's visit, so the meters of top-level visitors and of changes are only looked up once per registry.
+     */
+    private final Map<RefactorVisitor<? extends Tree>, Map<Class<?>, Timer>> visitTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> planTimers = new ConcurrentHashMap<>();
+    private final Map<String, Map<Class<?>, Counter>> changeCounters = new ConcurrentHashMap<>();
+
+    @Nullable
+    private RefactorProfile profile;
+
+    private int visitTimerSampling = 1;
+
+    /**
+     * Racing threads may time a few more or fewer visits than the sampling asks for, which is not worth synchronizing
+     * every visit to prevent.
+     */
+    private int visitsUntilSample = 1;
+
     public Refactor() {
         this(false);
     }
@@ -63,10 +84,84 @@ public class Refactor {
         return this;
     }
 
-    @SuppressWarnings("unchecked")
-    @Nullable
     public <S extends SourceFile> S fixed(S tree) {
-        return (S) fix(Collections.singletonList(tree)).iterator().next().getFixed();
+        return fixed(tree, 3);
+    }
+
+    /**
+     * Visit a single source, without the bookkeeping that {@link #fix(Iterable, int)} does to track the changes made to
+     * many sources. Visitors that generate sources need {@link #fix(Iterable, int)}, which returns them.
+     *
+     * @param tree      The source to visit.
+     * @param maxCycles The maximum number of iterations to visit the source.
+     * @return The fixed source, which is the same instance as {@code tree} if no visitor changed it.
+     * @throws IllegalStateException If a visitor generates a source, which couldn't be returned.
+     */
+    @SuppressWarnings("unchecked")
+    public <S extends SourceFile> S fixed(S tree, int maxCycles) {
+        Timer.Sample sample = Timer.start();
+
+        SourceFile acc = tree;
+
+        // usually there are few enough visitors that a list is cheaper than a set
+        List<String> visitorsThatMadeChanges = null;
+
+        Map<RefactorVisitor<?>, Map<UUID, WeakReference<Tree>>> irrelevantSubtrees = new IdentityHashMap<>();
+
+        for (int i = 0; i < maxCycles; i++) {
+            int visitorsThatMadeChangesThisCycle = 0;
+            for (RefactorVisitor<? extends Tree> visitor : visitors) {
+                try {
+                    visitor.next();
+
+                    if (!visitor.isIdempotent() && i > 0) {
+                        continue;
+                    }
+
+                    SourceFile before = acc;
+                    acc = (SourceFile) transformPipeline(acc, visitor, irrelevantSubtrees);
+
+                    if (before != acc) {
+                        if (visitorsThatMadeChanges == null) {
+                            visitorsThatMadeChanges = new ArrayList<>(visitors.size());
+                        }
+                        if (!visitorsThatMadeChanges.contains(visitor.getName())) {
+                            visitorsThatMadeChanges.add(visitor.getName());
+                        }
+                        visitorsThatMadeChangesThisCycle++;
+                    }
+                } catch (Throwable t) {
+                    visitorFailed(visitor, acc, t);
+                    if (eagerlyThrow) {
+                        throw t;
+                    }
+                }
+            }
+
+            for (RefactorVisitor<? extends Tree> visitor : visitors) {
+                if (!visitor.generate().isEmpty()) {
+                    throw new IllegalStateException(visitor.getName() + " generates sources, which fixing a " +
+                            "single source would drop. Use fix(..) instead.");
+                }
+            }
+            for (RefactorVisitor<? extends Tree> visitor : visitors) {
+                visitor.nextCycle();
+            }
+
+            // Always do at least two cycles in case all the visitors were ones
+            if (visitorsThatMadeChangesThisCycle == 0 && i > 0) {
+                break;
+            }
+        }
+
+        stopPlan(sample, visitorsThatMadeChanges != null);
+        if (visitorsThatMadeChanges != null) {
+            for (String ruleThatMadeChange : visitorsThatMadeChanges) {
+                countChange(ruleThatMadeChange, tree.getClass());
+            }
+        }
+
+        return (S) acc;
     }
 
     /**
@@ -93,8 +188,15 @@ public class Refactor {
 
         Map<SourceFile, Change> changesByTree = new HashMap<>();
 
-        List<SourceFile> accumulatedSources = new ArrayList<>();
-        sources.forEach(accumulatedSources::add);
+        List<SourceFile> accumulatedSources;
+        if (sources instanceof LazySourceFiles) {
+            accumulatedSources = new LazyAccumulatedSources((LazySourceFiles<?>) sources);
+        } else {
+            accumulatedSources = new ArrayList<>();
+            sources.forEach(accumulatedSources::add);
+        }
+
+        Map<RefactorVisitor<?>, Map<UUID, WeakReference<Tree>>> irrelevantSubtrees = new IdentityHashMap<>();
 
         for (int i = 0; i < maxCycles; i++) {
             int visitorsThatMadeChangesThisCycle = 0;
@@ -116,7 +218,7 @@ public class Refactor {
                         }
 
                         SourceFile before = acc;
-                        acc = (SourceFile) transformPipeline(acc, visitor);
+                        acc = (SourceFile) transformPipeline(acc, visitor, irrelevantSubtrees);
 
                         if (before != acc) {
                             // we should only report on the top-level visitors, not any andThen() visitors that
@@ -130,15 +232,7 @@ public class Refactor {
                             visitorsThatMadeChangesThisCycle++;
                         }
                     } catch (Throwable t) {
-                        logger.error("refactor visitor failed", t);
-                        Counter.builder("rewrite.visitor.errors")
-                                .baseUnit("errors")
-                                .description("Visitors that threw exceptions")
-                                .tag("visitor", visitor.getName())
-                                .tag("tree.type", prev.getClass().getName())
-                                .tag("exception", t.getClass().getSimpleName())
-                                .register(meterRegistry)
-                                .increment();
+                        visitorFailed(visitor, prev, t);
                         if(eagerlyThrow) {
                             throw t;
                         }
@@ -174,45 +268,181 @@ public class Refactor {
 
         }
 
-        sample.stop(Timer.builder("rewrite.refactor.plan")
-                .description("The time it takes to execute a refactoring plan consisting of potentially more than one visitor over more than one cycle")
-                .tag("outcome", changesByTree.isEmpty() ? "unchanged" : "changed")
-                .register(meterRegistry));
-
+        stopPlan(sample, !changesByTree.isEmpty());
         for (Change change : changesByTree.values()) {
             for (String ruleThatMadeChange : change.getVisitorsThatMadeChanges()) {
-                Counter.builder("rewrite.refactor.plan.changes")
-                        .description("The number of changes requested by a visitor")
-                        .tag("visitor", ruleThatMadeChange)
-                        .tag("tree.type", change.getTreeType() == null ? "unknown" : change.getTreeType().getName())
-                        .register(meterRegistry)
-                        .increment();
+                countChange(ruleThatMadeChange, change.getTreeType());
             }
         }
 
         return changesByTree.values();
     }
 
-    private Tree transformPipeline(Tree acc, RefactorVisitor<? extends Tree> visitor) {
+    private void visitorFailed(RefactorVisitor<? extends Tree> visitor, SourceFile source, Throwable t) {
+        logger.error("refactor visitor failed", t);
+        Counter.builder("rewrite.visitor.errors")
+                .baseUnit("errors")
+                .description("Visitors that threw exceptions")
+                .tag("visitor", visitor.getName())
+                .tag("tree.type", source.getClass().getName())
+                .tag("exception", t.getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void stopPlan(Timer.Sample sample, boolean changed) {
+        sample.stop(planTimers.computeIfAbsent(changed ? "changed" : "unchanged", outcome -> Timer.builder("rewrite.refactor.plan")
+                .description("The time it takes to execute a refactoring plan consisting of potentially more than one visitor over more than one cycle")
+                .tag("outcome", outcome)
+                .register(meterRegistry)));
+    }
+
+    private void countChange(String ruleThatMadeChange, @Nullable Class<?> treeType) {
+        changeCounters.computeIfAbsent(ruleThatMadeChange, r -> new ConcurrentHashMap<>())
+                .computeIfAbsent(treeType == null ? Tree.class : treeType, t -> Counter.builder("rewrite.refactor.plan.changes")
+                        .description("The number of changes requested by a visitor")
+                        .tag("visitor", ruleThatMadeChange)
+                        .tag("tree.type", treeType == null ? "unknown" : treeType.getName())
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    /**
+     * @param irrelevantSubtrees The subtrees that each visitor has proven irrelevant so far in the current run.
+     */
+    private Tree transformPipeline(Tree acc, RefactorVisitor<? extends Tree> visitor,
+                                   Map<RefactorVisitor<?>, Map<UUID, WeakReference<Tree>>> irrelevantSubtrees) {
+        return transformPipeline(acc, visitor, irrelevantSubtrees, true);
+    }
+
+    private Tree transformPipeline(Tree acc, RefactorVisitor<? extends Tree> visitor,
+                                   Map<RefactorVisitor<?>, Map<UUID, WeakReference<Tree>>> irrelevantSubtrees,
+                                   boolean topLevel) {
         // by transforming the AST for each op, we allow for the possibility of overlapping changes
-        Timer.Sample sample = Timer.start();
-        acc = visitor.visit(acc);
-        for (RefactorVisitor<? extends Tree> vis : visitor.andThen()) {
-            acc = transformPipeline(acc, vis);
+        Timer.Sample sample = null;
+        if (visitTimerSampling > 0 && --visitsUntilSample <= 0) {
+            visitsUntilSample = visitTimerSampling;
+            sample = Timer.start();
         }
 
-        sample.stop(Timer.builder("rewrite.refactor.visit")
+        Tree before = acc;
+        RefactorProfile profile = this.profile;
+        RefactorContext context = new RefactorContext(meterRegistry, profile != null, irrelevantSubtrees);
+        RefactorProfile.Sample profileSample = profile == null ? null : profile.start();
+        acc = context.run(() -> visitor instanceof AbstractRefactorVisitor ?
+                ((AbstractRefactorVisitor<?>) visitor).refactor(before) :
+                visitor.visit(before));
+        if (profileSample != null) {
+            profileSample.stop(visitor.getName(), before.getClass(), context.getProfiledTrees(), acc != before);
+        }
+
+        List<? extends RefactorVisitor<? extends Tree>> andThen = visitor instanceof AbstractRefactorVisitor ?
+                context.getAndThen() :
+                visitor.andThen();
+        for (RefactorVisitor<? extends Tree> vis : andThen) {
+            acc = transformPipeline(acc, vis, irrelevantSubtrees, false);
+        }
+
+        if (sample != null) {
+            Class<? extends Tree> treeType = acc.getClass();
+            // visitors scheduled by andThen() are new instances on every visit, so caching their timers would only grow
+            sample.stop(topLevel ?
+                    visitTimers.computeIfAbsent(visitor, v -> new ConcurrentHashMap<>())
+                            .computeIfAbsent(treeType, t -> visitTimer(visitor, treeType)) :
+                    visitTimer(visitor, treeType));
+        }
+
+        return acc;
+    }
+
+    private Timer visitTimer(RefactorVisitor<? extends Tree> visitor, Class<? extends Tree> treeType) {
+        return Timer.builder("rewrite.refactor.visit")
                 .description("The time it takes to visit a single AST with a particular refactoring visitor and its pipeline")
                 .tag("visitor", visitor.getName())
                 .tags(visitor.getTags())
-                .tag("tree.type", acc.getClass().getSimpleName())
-                .register(meterRegistry));
-
-        return acc;
+                .tag("tree.type", treeType.getSimpleName())
+                .register(meterRegistry);
     }
 
     public Refactor setMeterRegistry(MeterRegistry meterRegistry) {
         this.meterRegistry = meterRegistry;
+        visitTimers.clear();
+        planTimers.clear();
+        changeCounters.clear();
         return this;
     }
+
+    /**
+     * @param profile Where to record the time, allocations and visited trees of each visitor, or {@code null} to stop
+     *                profiling. Profiling measures every visit and slows down refactoring somewhat.
+     * @return This refactoring operation.
+     */
+    public Refactor setProfile(@Nullable RefactorProfile profile) {
+        this.profile = profile;
+        return this;
+    }
+
+    /**
+     * Timing every visit costs little next to most visitors, but can be noticeable next to visitors that only look
+     * at a few trees of each source. Timing only some of the visits keeps the distribution of visit times while
+     * recording fewer of them.
+     *
+     * @param everyNthVisit Time one in this many visits, or no visits at all when 0. Defaults to 1, timing every visit.
+     * @return This refactoring operation.
+     */
+    public Refactor setVisitTimerSampling(int everyNthVisit) {
+        if (everyNthVisit < 0) {
+            throw new IllegalArgumentException("Visits can only be timed every 1 or more visits, or never, but was " + everyNthVisit);
+        }
+        this.visitTimerSampling = everyNthVisit;
+        this.visitsUntilSample = Math.min(visitsUntilSample, Math.max(everyNthVisit, 1));
+        return this;
+    }
+
+    /**
+     * Sources accumulated over the cycles of a run over a {@link LazySourceFiles}. Only sources that were changed,
+     * deleted or generated are held on to, so unchanged sources can be released between one cycle and the next.
+     */
+    private static class LazyAccumulatedSources extends AbstractList<SourceFile> {
+        private final LazySourceFiles<?> sources;
+        private final Map<Integer, SourceFile> changed = new HashMap<>();
+        private final List<SourceFile> generated = new ArrayList<>();
+
+        private LazyAccumulatedSources(LazySourceFiles<?> sources) {
+            this.sources = sources;
+        }
+
+        @Override
+        public SourceFile get(int index) {
+            if (index >= sources.size()) {
+                return generated.get(index - sources.size());
+            }
+            return changed.containsKey(index) ? changed.get(index) : sources.get(index);
+        }
+
+        @Override
+        public SourceFile set(int index, SourceFile element) {
+            if (index >= sources.size()) {
+                return generated.set(index - sources.size(), element);
+            }
+            SourceFile prev = get(index);
+            if (prev != element) {
+                changed.put(index, element);
+            }
+            return prev;
+        }
+
+        @Override
+        public void add(int index, SourceFile element) {
+            if (index != size()) {
+                throw new UnsupportedOperationException("Generated sources can only be added at the end");
+            }
+            generated.add(element);
+        }
+
+        @Override
+        public int size() {
+            return sources.size() + generated.size();
+        }
+    }
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.openrewrite.internal.lang.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The state of one refactoring visitor's run over one source file: the visitors it schedules to run after it and
+ * the metrics gathered along the way. {@link Refactor} creates a context per visitor per source file, so that inside a
+ * {@link Refactor} the visitors themselves hold no pipeline state. A visitor used directly, outside of a
+ * {@link Refactor}, keeps the visitors it schedules itself, so it must not be shared across threads.
+ */
+public class RefactorContext {
+    private static final ThreadLocal<RefactorContext> current = new ThreadLocal<>();
+
+    /**
+     * The number of profiled runs in progress on any thread, so that refactoring visitors only look for a context to
+     * count their visits in while some run is being profiled.
+     */
+    private static final AtomicInteger profiledRuns = new AtomicInteger();
+
+    private final MeterRegistry meterRegistry;
+    private final boolean profiled;
+    private final List<RefactorVisitor<? extends Tree>> andThen = new ArrayList<>();
+
+    /**
+     * Subtrees that each visitor has visited without changing them, shared by the contexts of one run of a
+     * {@link Refactor} so that later cycles of the run can skip them, and dropped along with the run. A run happens on
+     * a single thread, so these are plain maps. Subtrees are held weakly, so that a run over lazily loaded sources can
+     * still release the sources it is done with.
+     */
+    private final Map<RefactorVisitor<?>, Map<UUID, WeakReference<Tree>>> irrelevantSubtrees;
+
+    private int visitedTrees;
+    private int profiledTrees;
+
+    public RefactorContext() {
+        this(Metrics.globalRegistry);
+    }
+
+    public RefactorContext(MeterRegistry meterRegistry) {
+        this(meterRegistry, false);
+    }
+
+    /**
+     * @param meterRegistry The registry to record metrics in.
+     * @param profiled      Whether to count every tree visited during the run, for a {@link RefactorProfile}.
+     */
+    RefactorContext(MeterRegistry meterRegistry, boolean profiled) {
+        this(meterRegistry, profiled, new IdentityHashMap<>());
+    }
+
+    /**
+     * @param meterRegistry      The registry to record metrics in.
+     * @param profiled           Whether to count every tree visited during the run, for a {@link RefactorProfile}.
+     * @param irrelevantSubtrees The irrelevant subtrees of each visitor, shared by every context of the same run.
+     */
+    RefactorContext(MeterRegistry meterRegistry, boolean profiled,
+                    Map<RefactorVisitor<?>, Map<UUID, WeakReference<Tree>>> irrelevantSubtrees) {
+        this.meterRegistry = meterRegistry;
+        this.profiled = profiled;
+        this.irrelevantSubtrees = irrelevantSubtrees;
+    }
+
+    /**
+     * @return The context of the run in progress on this thread, or {@code null} when a visitor is being
+     * used directly rather than as part of a {@link Refactor}.
+     */
+    @Nullable
+    public static RefactorContext current() {
+        return current.get();
+    }
+
+    /**
+     * Makes this the current context for the duration of a visit.
+     *
+     * @param visit The visit to run.
+     * @param <T>   The result of the visit.
+     * @return The result of the visit.
+     */
+    public <T> T run(Supplier<T> visit) {
+        RefactorContext previous = current.get();
+        current.set(this);
+        if (profiled) {
+            profiledRuns.incrementAndGet();
+        }
+        try {
+            return visit.get();
+        } finally {
+            if (profiled) {
+                profiledRuns.decrementAndGet();
+            }
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Counts a tree visited by a {@link RefactorVisitor} in the current context if it is being profiled.
+     */
+    static void countVisitedTree() {
+        if (profiledRuns.get() > 0) {
+            RefactorContext context = current.get();
+            if (context != null && context.profiled) {
+                context.profiledTrees++;
+            }
+        }
+    }
+
+    int getProfiledTrees() {
+        return profiledTrees;
+    }
+
+    public MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+
+    /**
+     * @return Other visitors to run after the visitor this context belongs to.
+     */
+    public List<RefactorVisitor<? extends Tree>> getAndThen() {
+        return andThen;
+    }
+
+    /**
+     * @param visitor A visitor that skips subtrees it has already proven irrelevant.
+     * @return The subtrees that the visitor has proven irrelevant so far in this run, by id.
+     */
+    Map<UUID, WeakReference<Tree>> getIrrelevantSubtrees(RefactorVisitor<?> visitor) {
+        return irrelevantSubtrees.computeIfAbsent(visitor, v -> new HashMap<>());
+    }
+
+    int getVisitedTrees() {
+        return visitedTrees;
+    }
+
+    int incrementVisitedTrees() {
+        return visitedTrees++;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite;
+
+import lombok.Getter;
+import org.openrewrite.internal.lang.Nullable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Where the time of a {@link Refactor} goes, per visitor and type of source file. Unlike the
+ * {@code rewrite.refactor.visit} timer, a visitor is only charged for its own work and not for the visitors it
+ * schedules with {@code andThen()}, which are profiled as visitors in their own right.
+ * <p>
+ * CPU time and allocated bytes are measured on the visiting thread where the JVM supports it, and are otherwise
+ * reported as -1.
+ */
+public class RefactorProfile {
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    @Nullable
+    private static final com.sun.management.ThreadMXBean allocations = allocations();
+
+    private static final boolean cpuTimeSupported = threads.isCurrentThreadCpuTimeSupported() &&
+            threads.isThreadCpuTimeEnabled();
+
+    private final Map<List<String>, Entry> entries = new ConcurrentHashMap<>();
+
+    @Nullable
+    private static com.sun.management.ThreadMXBean allocations() {
+        try {
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+                if (allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled()) {
+                    return allocations;
+                }
+            }
+        } catch (LinkageError ignored) {
+            // not a HotSpot-derived JVM
+        }
+        return null;
+    }
+
+    /**
+     * @return Every visitor and type of source file profiled so far, the most time-consuming first.
+     */
+    public List<Entry> getEntries() {
+        return entries.values().stream()
+                .sorted(Comparator.comparingLong(Entry::getSelfTime).reversed())
+                .collect(toList());
+    }
+
+    /**
+     * @return A table of the profiled visitors and types of source file, the most time-consuming first.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder(String.format("%-60s %-20s %8s %12s %12s %14s %12s %8s%n",
+                "visitor", "tree type", "visits", "self ms", "cpu ms", "allocated kB", "trees", "changes"));
+        for (Entry entry : getEntries()) {
+            report.append(String.format("%-60s %-20s %8d %12.3f %12.3f %14d %12d %8d%n",
+                    entry.getVisitor(),
+                    entry.getTreeType(),
+                    entry.getVisits(),
+                    entry.getSelfTime() / 1e6,
+                    entry.getCpuTime() < 0 ? -1.0 : entry.getCpuTime() / 1e6,
+                    entry.getAllocatedBytes() < 0 ? -1 : entry.getAllocatedBytes() / 1024,
+                    entry.getVisitedTrees(),
+                    entry.getChanges()));
+        }
+        return report.toString();
+    }
+
+    public void reset() {
+        entries.clear();
+    }
+
+    Sample start() {
+        return new Sample();
+    }
+
+    class Sample {
+        private final long allocatedBytes;
+        private final long cpuTime;
+        private final long startTime;
+
+        private Sample() {
+            this.allocatedBytes = allocatedBytes();
+            this.cpuTime = cpuTime();
+            // last, so that as little as possible of the profiling itself is measured
+            this.startTime = System.nanoTime();
+        }
+
+        void stop(String visitor, Class<? extends Tree> treeType, int visitedTrees, boolean changed) {
+            long selfTime = System.nanoTime() - startTime;
+            long cpuTime = this.cpuTime < 0 ? -1 : cpuTime() - this.cpuTime;
+            long allocatedBytes = this.allocatedBytes < 0 ? -1 : allocatedBytes() - this.allocatedBytes;
+
+            entries.computeIfAbsent(Arrays.asList(visitor, treeType.getSimpleName()), key -> new Entry(visitor, treeType.getSimpleName()))
+                    .record(selfTime, cpuTime, allocatedBytes, visitedTrees, changed);
+        }
+    }
+
+    private static long cpuTime() {
+        return cpuTimeSupported ? threads.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long allocatedBytes() {
+        return allocations == null ? -1 : allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Getter
+    public static class Entry {
+        private final String visitor;
+        private final String treeType;
+
+        private long visits;
+
+        /**
+         * Nanoseconds spent in the visitor itself, excluding the visitors it scheduled with {@code andThen()}.
+         */
+        private long selfTime;
+
+        /**
+         * Nanoseconds of CPU time spent in the visitor itself, or -1 if the JVM can't measure it.
+         */
+        private long cpuTime;
+
+        /**
+         * Bytes allocated by the visitor itself, or -1 if the JVM can't measure them.
+         */
+        private long allocatedBytes;
+
+        /**
+         * The number of trees visited, including by visitors that the visitor used to search the trees.
+         */
+        private long visitedTrees;
+
+        private long changes;
+
+        private Entry(String visitor, String treeType) {
+            this.visitor = visitor;
+            this.treeType = treeType;
+        }
+
+        private synchronized void record(long selfTime, long cpuTime, long allocatedBytes, int visitedTrees, boolean changed) {
+            this.visits++;
+            this.selfTime += selfTime;
+            this.cpuTime = cpuTime < 0 ? -1 : this.cpuTime + cpuTime;
+            this.allocatedBytes = allocatedBytes < 0 ? -1 : this.allocatedBytes + allocatedBytes;
+            this.visitedTrees += visitedTrees;
+            if (changed) {
+                this.changes++;
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a type whose instances, such as type attributions, are referred to by many source files. An archive written by
+ * {@link TreeSerializer#writeArchive(Iterable, java.io.OutputStream)} stores each distinct value of the type once in
+ * a table, and sources refer to it by its position in the table.
+ * <p>
+ * Instances of the type must be immutable and must not be enums. Instances that are equal to one another are read back
+ * as a single instance.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface SharedAcrossSources {
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.std.DelegatingDeserializer;
+import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import org.openrewrite.internal.lang.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The tables of {@link SharedAcrossSources} values of one archive. While an archive's sources are written or read with
+ * the tables set as an attribute of the serialization, each shared value is written as a negative number identifying
+ * its position in the table of its shared type. Negative numbers can't be confused with Jackson's object ids, which
+ * count up from one. Without the attribute, shared values are serialized as they always are.
+ * <p>
+ * Values that are equal to one another share a position, so shared types that aren't interned, like dependency
+ * coordinates, are still written once per archive, and are read back as a single instance.
+ * <p>
+ * The values in a table are written with the tables set too, so a shared value that refers to another one, like a
+ * method type to its declaring class, refers to it by position rather than repeating it. Only positions earlier in
+ * the table are referred to, so that a reader can resolve each value as soon as it reads it.
+ */
+class SharedValueTables {
+    private final Map<Class<?>, List<Object>> tables = new LinkedHashMap<>();
+    private final Map<Class<?>, Map<Object, Integer>> positions = new HashMap<>();
+    private final Map<Class<?>, Integer> written = new HashMap<>();
+
+    /**
+     * The position of the table value being written, while a table segment is written, or -1 while sources are.
+     */
+    private int writingPosition = -1;
+
+    /**
+     * The table value being written, until the serializer has started writing it in full.
+     */
+    @Nullable
+    private Object writingValue;
+
+    /**
+     * @return A module to register on the mapper used for archives.
+     */
+    static SimpleModule module() {
+        SimpleModule module = new SimpleModule();
+        module.setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc,
+                                                      JsonSerializer<?> serializer) {
+                Class<?> sharedType = sharedType(beanDesc.getBeanClass());
+                return sharedType == null ? serializer : new SharedValueSerializer(sharedType, serializer);
+            }
+        });
+        module.setDeserializerModifier(new BeanDeserializerModifier() {
+            @Override
+            public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, BeanDescription beanDesc,
+                                                          JsonDeserializer<?> deserializer) {
+                Class<?> sharedType = sharedType(beanDesc.getBeanClass());
+                return sharedType == null ? deserializer : new SharedValueDeserializer(sharedType, deserializer);
+            }
+        });
+        return module;
+    }
+
+    /**
+     * @param type A serialized type.
+     * @return The type or supertype annotated with {@link SharedAcrossSources}, if any.
+     */
+    @Nullable
+    static Class<?> sharedType(Class<?> type) {
+        if (type.isEnum()) {
+            return null;
+        }
+        if (type.isAnnotationPresent(SharedAcrossSources.class)) {
+            return type;
+        }
+        for (Class<?> iface : type.getInterfaces()) {
+            Class<?> shared = sharedType(iface);
+            if (shared != null) {
+                return shared;
+            }
+        }
+        return type.getSuperclass() == null ? null : sharedType(type.getSuperclass());
+    }
+
+    Set<Class<?>> getSharedTypes() {
+        return tables.keySet();
+    }
+
+    List<Object> getTable(Class<?> sharedType) {
+        return tables.getOrDefault(sharedType, Collections.emptyList());
+    }
+
+    /**
+     * Reads a segment of a table written by {@link ArchiveWriter}.
+     *
+     * @param mapper     The mapper used for archives.
+     * @param sharedType The class name of the shared type of the segment.
+     * @param segment    The segment, already inflated if the archive is compressed.
+     */
+    void readSegment(ObjectMapper mapper, String sharedType, byte[] segment) throws IOException {
+        Class<?> type;
+        try {
+            type = mapper.getTypeFactory().findClass(sharedType);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Source archive refers to a type that is not on the classpath", e);
+        }
+        List<Object> table = tables.computeIfAbsent(type, t -> new ArrayList<>());
+        try (MappingIterator<Object> values = mapper.readerFor(type)
+                .withAttribute(SharedValueTables.class, this)
+                .readValues(segment)) {
+            // each value may refer to the values before it, so it is added as soon as it is read
+            while (values.hasNext()) {
+                table.add(values.next());
+            }
+        }
+        written.put(type, table.size());
+        positions.remove(type);
+    }
+
+    /**
+     * Writes the values added to a table since it was last written to an archive.
+     *
+     * @param mapper     The mapper used for archives.
+     * @param sharedType The shared type of the table.
+     * @return The segment, or {@code null} if nothing has been added to the table.
+     */
+    @Nullable
+    byte[] writeSegment(ObjectMapper mapper, Class<?> sharedType) throws IOException {
+        List<Object> table = getTable(sharedType);
+        int start = written.getOrDefault(sharedType, 0);
+        if (start == table.size()) {
+            return null;
+        }
+
+        ByteArrayOutputStream segment = new ByteArrayOutputStream();
+        try (SequenceWriter segmentWriter = mapper.writerFor(sharedType)
+                .withAttribute(SharedValueTables.class, this)
+                .writeValuesAsArray(segment)) {
+            for (int i = start; i < table.size(); i++) {
+                writingPosition = i;
+                writingValue = table.get(i);
+                segmentWriter.write(writingValue);
+            }
+        } finally {
+            writingPosition = -1;
+            writingValue = null;
+        }
+        written.put(sharedType, table.size());
+        return segment.toByteArray();
+    }
+
+    SharedValueTables copy() {
+        SharedValueTables copy = new SharedValueTables();
+        tables.forEach((sharedType, table) -> copy.tables.put(sharedType, new ArrayList<>(table)));
+        copy.written.putAll(written);
+        return copy;
+    }
+
+    /**
+     * @return The position to write a shared value as, or {@code null} to write the value in full.
+     */
+    @Nullable
+    private Integer referenceTo(Class<?> sharedType, Object value) {
+        if (writingPosition < 0) {
+            return positionOf(sharedType, value);
+        }
+        if (value == writingValue) {
+            // the table value itself, as opposed to a value it refers to
+            writingValue = null;
+            return null;
+        }
+        Integer position = positions(sharedType).get(value);
+        return position != null && position < writingPosition ? position : null;
+    }
+
+    private int positionOf(Class<?> sharedType, Object value) {
+        Map<Object, Integer> typePositions = positions(sharedType);
+        Integer position = typePositions.get(value);
+        if (position == null) {
+            List<Object> table = tables.computeIfAbsent(sharedType, t -> new ArrayList<>());
+            position = table.size();
+            table.add(value);
+            typePositions.put(value, position);
+        }
+        return position;
+    }
+
+    private Map<Object, Integer> positions(Class<?> sharedType) {
+        return positions.computeIfAbsent(sharedType, t -> {
+            Map<Object, Integer> existing = new HashMap<>();
+            List<Object> table = getTable(t);
+            for (int i = 0; i < table.size(); i++) {
+                existing.put(table.get(i), i);
+            }
+            return existing;
+        });
+    }
+
+    private static class SharedValueSerializer extends JsonSerializer<Object> implements ContextualSerializer, ResolvableSerializer {
+        private final Class<?> sharedType;
+        private final JsonSerializer<Object> delegate;
+
+        @SuppressWarnings("unchecked")
+        private SharedValueSerializer(Class<?> sharedType, JsonSerializer<?> delegate) {
+            this.sharedType = sharedType;
+            this.delegate = (JsonSerializer<Object>) delegate;
+        }
+
+        @Override
+        public void serialize(Object value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            SharedValueTables tables = (SharedValueTables) serializers.getAttribute(SharedValueTables.class);
+            Integer position = tables == null ? null : tables.referenceTo(sharedType, value);
+            if (position == null) {
+                delegate.serialize(value, gen, serializers);
+            } else {
+                gen.writeNumber(-1 - position);
+            }
+        }
+
+        @Override
+        public void serializeWithType(Object value, JsonGenerator gen, SerializerProvider serializers,
+                                      TypeSerializer typeSer) throws IOException {
+            SharedValueTables tables = (SharedValueTables) serializers.getAttribute(SharedValueTables.class);
+            Integer position = tables == null ? null : tables.referenceTo(sharedType, value);
+            if (position == null) {
+                delegate.serializeWithType(value, gen, serializers, typeSer);
+            } else {
+                gen.writeNumber(-1 - position);
+            }
+        }
+
+        @Override
+        public JsonSerializer<?> createContextual(SerializerProvider prov, BeanProperty property) throws JsonMappingException {
+            return delegate instanceof ContextualSerializer ?
+                    new SharedValueSerializer(sharedType, ((ContextualSerializer) delegate).createContextual(prov, property)) :
+                    this;
+        }
+
+        @Override
+        public void resolve(SerializerProvider provider) throws JsonMappingException {
+            if (delegate instanceof ResolvableSerializer) {
+                ((ResolvableSerializer) delegate).resolve(provider);
+            }
+        }
+
+        @Override
+        public boolean usesObjectId() {
+            return delegate.usesObjectId();
+        }
+
+        @Override
+        public Class<Object> handledType() {
+            return delegate.handledType();
+        }
+    }
+
+    private static class SharedValueDeserializer extends DelegatingDeserializer {
+        private final Class<?> sharedType;
+
+        private SharedValueDeserializer(Class<?> sharedType, JsonDeserializer<?> delegate) {
+            super(delegate);
+            this.sharedType = sharedType;
+        }
+
+        @Override
+        protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+            return new SharedValueDeserializer(sharedType, newDelegatee);
+        }
+
+        @Override
+        public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            Object shared = readShared(p, ctxt);
+            return shared == null ? super.deserialize(p, ctxt) : shared;
+        }
+
+        @Override
+        public Object deserializeWithType(JsonParser p, DeserializationContext ctxt, TypeDeserializer typeDeserializer) throws IOException {
+            Object shared = readShared(p, ctxt);
+            return shared == null ? super.deserializeWithType(p, ctxt, typeDeserializer) : shared;
+        }
+
+        @Nullable
+        private Object readShared(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() != JsonToken.VALUE_NUMBER_INT || p.getIntValue() >= 0) {
+                return null;
+            }
+            SharedValueTables tables = (SharedValueTables) ctxt.getAttribute(SharedValueTables.class);
+            if (tables == null) {
+                return null;
+            }
+            return tables.getTable(sharedType).get(-1 - p.getIntValue());
+        }
+    }
+}
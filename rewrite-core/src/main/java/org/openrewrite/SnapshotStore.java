@@ -0,0 +1,257 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite;
+
+import org.openrewrite.internal.lang.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Snapshots of the sources of a repository taken over time, stored so that storage and the time to take a snapshot
+ * grow with how much the repository changes rather than with its size.
+ * <p>
+ * Each source is stored once under a hash of its source path and content in a memory-mapped {@link TreeStore} of
+ * blobs shared by every snapshot. A snapshot is a manifest of the hashes of its sources, so taking a snapshot only
+ * serializes the sources that no earlier snapshot already stored.
+ * <p>
+ * A parsed source also depends on what it was parsed against, like the type attribution that comes from the
+ * classpath, so the hash also covers an attribution fingerprint given to the store. A source whose content is
+ * unchanged but whose classpath changed is stored anew rather than reusing stale types.
+ * <p>
+ * Blobs are never removed. {@link #delete(String) Deleting} a snapshot only removes its manifest, so the store keeps
+ * growing with every source any snapshot ever stored. Compacting the blobs would mean replacing the blob file, which
+ * other processes that have it open would keep appending to, so a store that has to shrink is recreated instead.
+ *
+ * @param <S> The type of source file in the store.
+ */
+public class SnapshotStore<S extends SourceFile> implements Closeable {
+    private static final String MANIFEST_EXTENSION = ".manifest";
+
+    private final Path manifests;
+    private final TreeStore<S> blobs;
+    private final String attribution;
+
+    /**
+     * @param directory   The directory holding the blobs and the manifests of the store.
+     * @param attribution A fingerprint of everything besides their content that sources are parsed against.
+     */
+    public SnapshotStore(Path directory, String attribution) {
+        this(directory, new TreeSerializer<>(), attribution);
+    }
+
+    /**
+     * Opens the store in a directory, creating an empty store if the directory doesn't contain one.
+     *
+     * @param directory   The directory holding the blobs and the manifests of the store.
+     * @param serializer  The serializer that reads and writes sources.
+     * @param attribution A fingerprint of everything besides their content that sources are parsed against, such as
+     *                    the one {@link #classpathFingerprint(Collection)} computes, along with the version of the parser.
+     */
+    public SnapshotStore(Path directory, TreeSerializer<S> serializer, String attribution) {
+        this.attribution = attribution;
+        try {
+            this.manifests = Files.createDirectories(directory.resolve("snapshots"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.blobs = new TreeStore<>(directory.resolve("blobs.lst"), serializer, false);
+    }
+
+    /**
+     * Fingerprints a classpath by the path, size and modification time of each entry, rather than by the content of
+     * each entry, so that it is cheap enough to compute for every snapshot.
+     *
+     * @param classpath The classpath that sources are parsed against.
+     * @return An attribution fingerprint for the store.
+     */
+    public static String classpathFingerprint(Collection<Path> classpath) {
+        MessageDigest digest = sha256();
+        for (Path entry : classpath) {
+            digest.update(entry.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            try {
+                digest.update((Files.size(entry) + "@" + Files.getLastModifiedTime(entry).toMillis())
+                        .getBytes(StandardCharsets.UTF_8));
+            } catch (IOException ignored) {
+                // an entry that doesn't exist contributes only its path
+            }
+            digest.update((byte) 0);
+        }
+        return hex(digest.digest());
+    }
+
+    /**
+     * Hashes a source file before parsing it, so that a caller can reuse a stored source instead of parsing the file
+     * again when {@link #contains(String)} finds it.
+     *
+     * @param sourcePath The source path of a source file.
+     * @param content    The content of the source file, as it would be printed in UTF-8.
+     * @return The key the source is stored under.
+     */
+    public String contentHash(String sourcePath, byte[] content) {
+        MessageDigest digest = sha256();
+        digest.update(attribution.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(sourcePath.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(content);
+        return hex(digest.digest());
+    }
+
+    public String contentHash(S source) {
+        return contentHash(source.getSourcePath(), source.print().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param contentHash The content hash of a source.
+     * @return Whether any snapshot stored a source with that hash.
+     */
+    public boolean contains(String contentHash) {
+        return blobs.getSources().indexOfSourcePath(contentHash) >= 0;
+    }
+
+    /**
+     * @param contentHash The content hash of a source.
+     * @return The stored source with that hash, or {@code null} if no snapshot stored one.
+     */
+    @Nullable
+    public S get(String contentHash) {
+        return blobs.get(contentHash);
+    }
+
+    /**
+     * Stores the sources that earlier snapshots didn't, and then a manifest of every source of the snapshot.
+     *
+     * @param snapshot The name of the snapshot, such as a date or a commit id, replacing any snapshot of the same name.
+     * @param sources  Every source of the snapshot.
+     */
+    public synchronized void commit(String snapshot, Iterable<S> sources) {
+        Path manifest = manifest(snapshot);
+
+        Map<String, S> added = new LinkedHashMap<>();
+        StringBuilder entries = new StringBuilder();
+        for (S source : sources) {
+            String contentHash = contentHash(source);
+            if (!added.containsKey(contentHash) && !contains(contentHash)) {
+                added.put(contentHash, source);
+            }
+            entries.append(contentHash).append('\t').append(source.getSourcePath()).append('\n');
+        }
+
+        if (!added.isEmpty()) {
+            blobs.append(added);
+        }
+
+        try {
+            // readers never see a partially written manifest
+            Path written = Files.write(manifests.resolve(snapshot + MANIFEST_EXTENSION + ".tmp"),
+                    entries.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(written, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Removes a snapshot, leaving its sources in the store for other snapshots that share them.
+     *
+     * @param snapshot The name of a snapshot.
+     * @return Whether there was a snapshot of that name.
+     */
+    public boolean delete(String snapshot) {
+        try {
+            return Files.deleteIfExists(manifest(snapshot));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return The names of every snapshot in the store, in lexical order.
+     */
+    public List<String> getSnapshots() {
+        try (Stream<Path> files = Files.list(manifests)) {
+            return files
+                    .map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(MANIFEST_EXTENSION))
+                    .map(name -> name.substring(0, name.length() - MANIFEST_EXTENSION.length()))
+                    .sorted()
+                    .collect(toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param snapshot The name of a snapshot.
+     * @return The sources of the snapshot in the order they were committed, each deserialized when it is first accessed.
+     */
+    public LazySourceFiles<S> load(String snapshot) {
+        List<String> contentHashes = new ArrayList<>();
+        List<String> sourcePaths = new ArrayList<>();
+        try {
+            for (String entry : Files.readAllLines(manifest(snapshot), StandardCharsets.UTF_8)) {
+                int tab = entry.indexOf('\t');
+                contentHashes.add(entry.substring(0, tab));
+                sourcePaths.add(entry.substring(tab + 1));
+            }
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("No snapshot named " + snapshot, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // the snapshot may have been committed by another process since the blobs were mapped
+        blobs.refresh();
+        return blobs.getSources().select(contentHashes, sourcePaths);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required of every Java platform", e);
+        }
+    }
+
+    private static String hex(byte[] hash) {
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private Path manifest(String snapshot) {
+        if (snapshot.isEmpty() || snapshot.startsWith(".") || snapshot.contains("/") || snapshot.contains("\\")) {
+            throw new IllegalArgumentException("Snapshot names must be usable as file names, but was " + snapshot);
+        }
+        return manifests.resolve(snapshot + MANIFEST_EXTENSION);
+    }
+
+    @Override
+    public void close() throws IOException {
+        blobs.close();
+    }
+}
@@ -16,20 +16,22 @@
 package org.openrewrite;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.UncheckedIOException;
-import java.util.List;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class TreeSerializer<S extends SourceFile> {
     private final TypeReference<S> sourceType = new TypeReference<S>() {
@@ -48,6 +50,8 @@ public class TreeSerializer<S extends SourceFile> {
 
         this.mapper = new ObjectMapper(f)
                 .registerModule(metadataModule)
+                .registerModule(SharedValueTables.module())
+                .registerModule(Formatting.archiveModule())
                 .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
                 .setSerializationInclusion(JsonInclude.Include.NON_NULL);
     }
@@ -84,9 +88,239 @@ public class TreeSerializer<S extends SourceFile> {
         }
     }
 
+    /**
+     * Writes sources as an archive: each source is an independent Smile document, preceded by the values of each type
+     * marked {@link SharedAcrossSources} that it was the first to refer to and followed at the end of the archive by an
+     * index of the sources' paths and positions. Sources refer to a shared value by its position in its table, so a
+     * type attribution common to many sources is written once per archive rather than once per source.
+     * {@link #readLazy(Path)} uses the index to deserialize any one source without the others,
+     * {@link #readArchive(InputStream)} reads the sources front to back without the index, and
+     * {@link #readList(byte[])} reads archives as well as lists written by {@link #write(Iterable)}.
+     *
+     * @param sources The sources to archive.
+     * @param out     The stream to write the archive to, which is left open.
+     */
+    public void writeArchive(Iterable<S> sources, OutputStream out) {
+        writeArchive(sources, out, false);
+    }
+
+    /**
+     * @param sources The sources to archive.
+     * @param out     The stream to write the archive to, which is left open.
+     * @param deflate Whether to compress each source and table segment, which keeps them independently readable.
+     */
+    public void writeArchive(Iterable<S> sources, OutputStream out, boolean deflate) {
+        try {
+            ArchiveWriter<S> writer = archiveWriter(out, deflate);
+            writer.writeAll(sources);
+            writer.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public byte[] writeArchive(Iterable<S> sources) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeArchive(sources, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * @param out The stream to write an archive to, which is closed when the writer is.
+     * @return A writer that adds sources to the archive one at a time.
+     */
+    public ArchiveWriter<S> archiveWriter(OutputStream out) {
+        return archiveWriter(out, false);
+    }
+
+    /**
+     * @param out     The stream to write an archive to, which is closed when the writer is.
+     * @param deflate Whether to compress each source and table segment, which keeps them independently readable.
+     * @return A writer that adds sources to the archive one at a time.
+     */
+    public ArchiveWriter<S> archiveWriter(OutputStream out, boolean deflate) {
+        try {
+            DataOutputStream header = new DataOutputStream(out);
+            header.write(ArchiveFormat.MAGIC);
+            header.writeInt(ArchiveFormat.VERSION);
+            header.writeInt(deflate ? ArchiveFormat.FLAG_DEFLATED : 0);
+            return new ArchiveWriter<>(mapper, out, ArchiveFormat.HEADER_LENGTH, new ArchiveIndex(deflate),
+                    new SharedValueTables());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param out      The stream positioned after the old index of an archive.
+     * @param position The length of the archive so far.
+     * @param index    The index of the archive so far, which is updated with the added sources.
+     * @param tables   The shared value tables of the archive so far, which are updated with the values the added sources refer to.
+     * @return A writer that adds sources, superseding sources already in the archive that have the same source path.
+     */
+    ArchiveWriter<S> appendToArchive(OutputStream out, long position, ArchiveIndex index, SharedValueTables tables) {
+        return new ArchiveWriter<>(mapper, out, position, index, tables);
+    }
+
+    /**
+     * Opens an archive written by {@link #writeArchive(Iterable, OutputStream)}, reading only its index and shared
+     * value tables.
+     *
+     * @param archive The archive file.
+     * @return The sources of the archive, each deserialized when it is first accessed. Close it to release the file.
+     */
+    public LazySourceFiles<S> readLazy(Path archive) {
+        try {
+            FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ);
+            try {
+                LazySourceFiles.Chunks chunks = new LazySourceFiles.Chunks() {
+                    @Override
+                    public byte[] read(long offset, int length) throws IOException {
+                        ByteBuffer buffer = ByteBuffer.allocate(length);
+                        while (buffer.hasRemaining()) {
+                            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                                throw new EOFException("Archive ends before the source at offset " + offset);
+                            }
+                        }
+                        return buffer.array();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        channel.close();
+                    }
+                };
+                ArchiveIndex index = readArchiveIndex(chunks, channel.size());
+                return lazySourceFiles(index, readTables(index, chunks), chunks);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public LazySourceFiles<S> readLazy(byte[] archive) {
+        try {
+            LazySourceFiles.Chunks chunks = (offset, length) ->
+                    Arrays.copyOfRange(archive, (int) offset, (int) offset + length);
+            ArchiveIndex index = readArchiveIndex(chunks, archive.length);
+            return lazySourceFiles(index, readTables(index, chunks), chunks);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param input A stream of an archive written by {@link #writeArchive(Iterable, OutputStream)} or an
+     *              {@link ArchiveWriter}.
+     * @return The sources of the archive, deserialized one at a time as they are iterated over. Close it to close the stream.
+     */
+    public ArchiveReader<S> readArchive(InputStream input) {
+        try {
+            return new ArchiveReader<>(mapper, mapper.readerFor(sourceType), input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    ArchiveIndex readArchiveIndex(LazySourceFiles.Chunks chunks, long size) throws IOException {
+        if (size < ArchiveFormat.HEADER_LENGTH + ArchiveFormat.TRAILER_LENGTH) {
+            throw new IOException("Not a source archive");
+        }
+
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(chunks.read(0, ArchiveFormat.HEADER_LENGTH)));
+        byte[] openingMagic = new byte[ArchiveFormat.MAGIC.length];
+        header.readFully(openingMagic);
+        if (!ArchiveFormat.isArchive(openingMagic)) {
+            throw new IOException("Not a source archive");
+        }
+        int version = header.readInt();
+        if (version != ArchiveFormat.VERSION) {
+            throw new IOException("Source archive version " + version + " can't be read by this version of rewrite");
+        }
+        boolean deflated = (header.readInt() & ArchiveFormat.FLAG_DEFLATED) != 0;
+
+        DataInputStream trailer = new DataInputStream(new ByteArrayInputStream(
+                chunks.read(size - ArchiveFormat.TRAILER_LENGTH, ArchiveFormat.TRAILER_LENGTH)));
+        long indexOffset = trailer.readLong();
+        byte[] closingMagic = new byte[ArchiveFormat.MAGIC.length];
+        trailer.readFully(closingMagic);
+        if (!ArchiveFormat.isArchive(closingMagic)) {
+            throw new IOException("Source archive is truncated");
+        }
+
+        byte[] index = chunks.read(indexOffset, (int) (size - ArchiveFormat.TRAILER_LENGTH - indexOffset));
+        try (JsonParser indexParser = mapper.getFactory().createParser(index)) {
+            return ArchiveIndex.read(deflated, indexParser);
+        }
+    }
+
+    SharedValueTables readTables(ArchiveIndex index, LazySourceFiles.Chunks chunks) throws IOException {
+        SharedValueTables tables = new SharedValueTables();
+        for (ArchiveIndex.Entry segment : index.getTables()) {
+            byte[] stored = chunks.read(segment.getOffset(), segment.getLength());
+            tables.readSegment(mapper, segment.getName(), index.isDeflated() ? ArchiveFormat.inflate(stored) : stored);
+        }
+        return tables;
+    }
+
+    LazySourceFiles<S> lazySourceFiles(ArchiveIndex index, SharedValueTables tables, LazySourceFiles.Chunks chunks) {
+        ObjectReader sourceReader = mapper.readerFor(sourceType).withAttribute(SharedValueTables.class, tables);
+        return new LazySourceFiles<>(index.getSources(), chunks, index.isDeflated() ?
+                stored -> sourceReader.readValue(ArchiveFormat.inflate(stored)) :
+                sourceReader::readValue);
+    }
+
+    /**
+     * Reads every source of an archive written by {@link #writeArchive(Iterable, OutputStream)}, deserializing sources on
+     * several threads at once. Each source in an archive is an independent document, so the threads only share the
+     * archive's shared value tables, which are read first.
+     *
+     * @param archive The archive file.
+     * @param threads The number of threads to deserialize sources on.
+     * @return Every source in the archive, in archive order.
+     */
+    public List<S> readList(Path archive, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (LazySourceFiles<S> sources = readLazy(archive)) {
+            return sources.readAll(executor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     public List<S> readList(InputStream input) {
         try {
-            return mapper.readValue(input, sourceListType);
+            BufferedInputStream buffered = new BufferedInputStream(input);
+            buffered.mark(ArchiveFormat.MAGIC.length);
+            byte[] magic = new byte[ArchiveFormat.MAGIC.length];
+            int read = buffered.read(magic);
+            buffered.reset();
+
+            if (read == ArchiveFormat.MAGIC.length && ArchiveFormat.isArchive(magic)) {
+                List<S> sources = new ArrayList<>();
+                Map<String, Integer> positions = new HashMap<>();
+                ArchiveReader<S> archive = readArchive(buffered);
+                while (archive.hasNext()) {
+                    S source = archive.next();
+                    Integer superseded = source.getSourcePath() == null ? null : positions.get(source.getSourcePath());
+                    if (superseded == null) {
+                        if (source.getSourcePath() != null) {
+                            positions.put(source.getSourcePath(), sources.size());
+                        }
+                        sources.add(source);
+                    } else {
+                        sources.set(superseded, source);
+                    }
+                }
+                return sources;
+            }
+
+            return mapper.readValue(buffered, sourceListType);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -94,6 +328,9 @@ public class TreeSerializer<S extends SourceFile> {
 
     public List<S> readList(byte[] bytes) {
         try {
+            if (ArchiveFormat.isArchive(bytes)) {
+                return new ArrayList<>(readLazy(bytes));
+            }
             return mapper.readValue(bytes, sourceListType);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
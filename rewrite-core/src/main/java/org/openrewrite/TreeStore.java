@@ -0,0 +1,363 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite;
+
+import org.openrewrite.internal.lang.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * An on-disk store of sources in the archive format of {@link TreeSerializer}, memory-mapped so that processes reading
+ * the same store share the operating system's page cache. A single source can be read by its source path without
+ * reading any other source.
+ * <p>
+ * Sources are added by appending them to the end of the store followed by a new index, which supersedes any source with
+ * the same source path. Nothing already written is ever overwritten, so readers that opened the store before an append
+ * keep a consistent view of it until they {@link #refresh()}.
+ * <p>
+ * Appends hold an exclusive lock on the store file and reads of its index hold a shared one, so processes that share a
+ * store never see half of an append. An append that was interrupted, for example because its process died, leaves
+ * bytes after the last complete index. Those bytes are ignored when the store is read and overwritten by the next
+ * append.
+ *
+ * @param <S> The type of source file in the store.
+ */
+public class TreeStore<S extends SourceFile> implements Closeable {
+    /**
+     * A single mapping can't be larger than {@link Integer#MAX_VALUE}, so larger stores are mapped in regions.
+     */
+    private static final long MAX_REGION_SIZE = 1L << 30;
+
+    /**
+     * How much of the store is read at a time while looking back for the last complete index.
+     */
+    private static final int TRAILER_SCAN_SIZE = 64 * 1024;
+
+    /**
+     * File locks are held on behalf of the whole JVM, and requesting a lock that overlaps one already held by the JVM
+     * fails rather than waits, so stores of the same file in one JVM take turns locking it. A lock is dropped when the
+     * last open store of its file is closed.
+     */
+    private static final Map<Path, InProcessLock> IN_PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final InProcessLock inProcessLock;
+
+    private final Path path;
+    private final TreeSerializer<S> serializer;
+    private final FileChannel channel;
+
+    private volatile Snapshot<S> snapshot;
+
+    private boolean closed;
+
+    public TreeStore(Path path) {
+        this(path, new TreeSerializer<>());
+    }
+
+    public TreeStore(Path path, TreeSerializer<S> serializer) {
+        this(path, serializer, false);
+    }
+
+    /**
+     * Opens the store at a path, creating an empty store if there is no file at the path.
+     *
+     * @param path       The store file.
+     * @param serializer The serializer that reads and writes sources.
+     * @param deflate    Whether a newly created store compresses its sources. An existing store keeps compressing, or
+     *                   not compressing, its sources as it did when it was created.
+     */
+    public TreeStore(Path path, TreeSerializer<S> serializer, boolean deflate) {
+        this.path = path;
+        this.serializer = serializer;
+        this.inProcessLock = InProcessLock.acquire(path.toAbsolutePath().normalize());
+        FileChannel channel = null;
+        try {
+            if (!Files.exists(path)) {
+                create(deflate);
+            }
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.channel = channel;
+            this.snapshot = map();
+        } catch (IOException e) {
+            // a store that failed to open is never closed, so it gives up its share of the lock here
+            inProcessLock.release();
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes an empty store while holding a lock on it, so that other processes don't read it half written.
+     */
+    private void create(boolean deflate) throws IOException {
+        ByteArrayOutputStream empty = new ByteArrayOutputStream();
+        serializer.writeArchive(emptyList(), empty, deflate);
+
+        synchronized (inProcessLock) {
+            try (FileChannel createChannel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                 FileLock ignored = createChannel.lock()) {
+                createChannel.write(ByteBuffer.wrap(empty.toByteArray()));
+                createChannel.force(false);
+            } catch (FileAlreadyExistsException ignored) {
+                // another process created the store first
+            }
+        }
+    }
+
+    /**
+     * @param sourcePath The source path of a source.
+     * @return The latest version of the source at that path, or {@code null} if the store has none.
+     */
+    @Nullable
+    public S get(String sourcePath) {
+        return snapshot.sources.get(sourcePath);
+    }
+
+    /**
+     * @return The latest version of every source in the store, each deserialized when it is first accessed.
+     */
+    public LazySourceFiles<S> getSources() {
+        return snapshot.sources;
+    }
+
+    /**
+     * Adds sources to the end of the store, superseding sources already in the store that have the same source path.
+     *
+     * @param sources The sources to add, such as the changed sources of a refactoring run.
+     */
+    public synchronized void append(Iterable<S> sources) {
+        append(writer -> {
+            for (S source : sources) {
+                writer.write(source);
+            }
+        });
+    }
+
+    /**
+     * Adds sources under names other than their source paths, superseding sources already in the store that have the
+     * same name.
+     *
+     * @param sources The sources to add, by the name that {@link #get(String)} locates each by.
+     */
+    synchronized void append(Map<String, S> sources) {
+        append(writer -> {
+            for (Map.Entry<String, S> source : sources.entrySet()) {
+                writer.write(source.getKey(), source.getValue());
+            }
+        });
+    }
+
+    private void append(Consumer<ArchiveWriter<S>> write) {
+        try {
+            synchronized (inProcessLock) {
+                try (FileChannel appendChannel = FileChannel.open(path, StandardOpenOption.WRITE);
+                     FileLock ignored = appendChannel.lock()) {
+                    Snapshot<S> current = channel.size() == snapshot.fileSize ? snapshot : mapLocked();
+
+                    // drop whatever an interrupted append left after the last complete index
+                    appendChannel.truncate(current.size);
+                    appendChannel.position(current.size);
+
+                    ArchiveWriter<S> writer = serializer.appendToArchive(
+                            new BufferedOutputStream(Channels.newOutputStream(appendChannel)),
+                            current.size, current.index.copy(), current.tables.copy());
+                    write.accept(writer);
+                    writer.finish();
+                    appendChannel.force(false);
+                }
+            }
+            snapshot = map();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Picks up sources appended to the store by other processes since it was opened or last refreshed.
+     */
+    public synchronized void refresh() {
+        try {
+            if (channel.size() != snapshot.fileSize) {
+                snapshot = map();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Snapshot<S> map() throws IOException {
+        synchronized (inProcessLock) {
+            try (FileLock ignored = channel.lock(0, Long.MAX_VALUE, true)) {
+                return mapLocked();
+            }
+        }
+    }
+
+    /**
+     * Maps the store while holding a lock on it, so that no append is in progress.
+     */
+    private Snapshot<S> mapLocked() throws IOException {
+        long fileSize = channel.size();
+        MappedByteBuffer[] regions = new MappedByteBuffer[(int) ((fileSize + MAX_REGION_SIZE - 1) / MAX_REGION_SIZE)];
+        for (int i = 0; i < regions.length; i++) {
+            long offset = i * MAX_REGION_SIZE;
+            regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(MAX_REGION_SIZE, fileSize - offset));
+        }
+
+        LazySourceFiles.Chunks chunks = (offset, length) -> {
+            byte[] bytes = new byte[length];
+            int read = 0;
+            while (read < length) {
+                long position = offset + read;
+                ByteBuffer region = regions[(int) (position / MAX_REGION_SIZE)].duplicate();
+                region.position((int) (position % MAX_REGION_SIZE));
+                int n = Math.min(length - read, region.remaining());
+                region.get(bytes, read, n);
+                read += n;
+            }
+            return bytes;
+        };
+
+        long size = fileSize;
+        ArchiveIndex index = null;
+        IOException incomplete = null;
+        while (index == null) {
+            try {
+                index = serializer.readArchiveIndex(chunks, size);
+            } catch (IOException | RuntimeException e) {
+                if (incomplete == null) {
+                    incomplete = e instanceof IOException ? (IOException) e : new IOException(e);
+                }
+                size = previousTrailerEnd(chunks, size);
+                if (size < 0) {
+                    throw incomplete;
+                }
+            }
+        }
+
+        SharedValueTables tables = serializer.readTables(index, chunks);
+        return new Snapshot<>(fileSize, size, index, tables, serializer.lazySourceFiles(index, tables, chunks));
+    }
+
+    /**
+     * @param end An offset in the store.
+     * @return The end of the last trailer that ends before the offset, or -1 if there is none.
+     */
+    private static long previousTrailerEnd(LazySourceFiles.Chunks chunks, long end) throws IOException {
+        byte[] magic = ArchiveFormat.MAGIC;
+        long minEnd = ArchiveFormat.HEADER_LENGTH + ArchiveFormat.TRAILER_LENGTH;
+
+        // blocks overlap by less than the magic, so that every candidate end is checked once
+        long to = end - 1;
+        while (to >= minEnd) {
+            long from = Math.max(0, to - TRAILER_SCAN_SIZE);
+            byte[] block = chunks.read(from, (int) (to - from));
+            for (int e = block.length; e >= magic.length && from + e >= minEnd; e--) {
+                if (endsWith(block, e, magic)) {
+                    return from + e;
+                }
+            }
+            if (from == 0) {
+                break;
+            }
+            to = from + magic.length - 1;
+        }
+        return -1;
+    }
+
+    private static boolean endsWith(byte[] bytes, int end, byte[] suffix) {
+        for (int i = 0; i < suffix.length; i++) {
+            if (bytes[end - suffix.length + i] != suffix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            inProcessLock.release();
+            channel.close();
+        }
+    }
+
+    /**
+     * Stands in for the JVM's lock on a store file, counting the open stores of that file.
+     */
+    private static class InProcessLock {
+        private final Path path;
+        private int stores;
+
+        private InProcessLock(Path path) {
+            this.path = path;
+        }
+
+        private static InProcessLock acquire(Path path) {
+            return IN_PROCESS_LOCKS.compute(path, (p, lock) -> {
+                InProcessLock acquired = lock == null ? new InProcessLock(p) : lock;
+                acquired.stores++;
+                return acquired;
+            });
+        }
+
+        private void release() {
+            IN_PROCESS_LOCKS.computeIfPresent(path, (p, lock) -> --lock.stores == 0 ? null : lock);
+        }
+    }
+
+    private static class Snapshot<S extends SourceFile> {
+        private final long fileSize;
+
+        /**
+         * The length of the store up to the end of its last complete index.
+         */
+        private final long size;
+
+        private final ArchiveIndex index;
+        private final SharedValueTables tables;
+        private final LazySourceFiles<S> sources;
+
+        private Snapshot(long fileSize, long size, ArchiveIndex index, SharedValueTables tables, LazySourceFiles<S> sources) {
+            this.fileSize = fileSize;
+            this.size = size;
+            this.index = index;
+            this.tables = tables;
+            this.sources = sources;
+        }
+    }
+}
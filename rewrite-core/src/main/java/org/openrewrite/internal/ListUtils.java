@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.internal;
+
+import org.openrewrite.internal.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Copy-on-write operations over the child lists of immutable trees. Each operation returns the original
+ * list instance when no element changes, and only copies the list once the first element actually changes,
+ * so visiting a list that comes back unchanged costs no allocation at all.
+ */
+public class ListUtils {
+    private ListUtils() {
+    }
+
+    /**
+     * @param ls  The list to map over.
+     * @param map A mapping which may return the same instance it was given to indicate no change.
+     * @param <T> The element type.
+     * @return The original list if no element changed by reference, otherwise a new list.
+     */
+    @Nullable
+    public static <T> List<T> map(@Nullable List<T> ls, UnaryOperator<T> map) {
+        if (ls == null || ls.isEmpty()) {
+            return ls;
+        }
+
+        List<T> mapped = null;
+        for (int i = 0; i < ls.size(); i++) {
+            T t = ls.get(i);
+            T m = map.apply(t);
+            if (mapped == null && m != t) {
+                mapped = new ArrayList<>(ls.size());
+                for (int j = 0; j < i; j++) {
+                    mapped.add(ls.get(j));
+                }
+            }
+            if (mapped != null) {
+                mapped.add(m);
+            }
+        }
+
+        return mapped == null ? ls : mapped;
+    }
+
+    @Nullable
+    public static <T> List<T> mapFirst(@Nullable List<T> ls, UnaryOperator<T> mapFirst) {
+        if (ls == null || ls.isEmpty()) {
+            return ls;
+        }
+        return mapAt(ls, 0, mapFirst);
+    }
+
+    @Nullable
+    public static <T> List<T> mapLast(@Nullable List<T> ls, UnaryOperator<T> mapLast) {
+        if (ls == null || ls.isEmpty()) {
+            return ls;
+        }
+        return mapAt(ls, ls.size() - 1, mapLast);
+    }
+
+    private static <T> List<T> mapAt(List<T> ls, int index, UnaryOperator<T> map) {
+        T t = ls.get(index);
+        T m = map.apply(t);
+        if (m == t) {
+            return ls;
+        }
+
+        List<T> mapped = new ArrayList<>(ls);
+        mapped.set(index, m);
+        return mapped;
+    }
+}
@@ -26,16 +26,23 @@ import static java.util.Collections.emptyList;
 
 public class PlainText implements SourceFile, Tree {
     private final UUID id;
+    private final String sourcePath;
     private final String text;
     private final Formatting formatting;
     private final Collection<Style> styles;
 
+    public PlainText(UUID id, String text, Formatting formatting, Collection<Style> styles) {
+        this(id, null, text, formatting, styles);
+    }
+
     @JsonCreator
     public PlainText(@JsonProperty("id") UUID id,
+                     @JsonProperty("sourcePath") String sourcePath,
                      @JsonProperty("text") String text,
                      @JsonProperty("formatting") Formatting formatting,
                      @JsonProperty("styles") Collection<Style> styles) {
         this.id = id;
+        this.sourcePath = sourcePath;
         this.text = text;
         this.formatting = formatting;
         this.styles = styles;
@@ -48,7 +55,11 @@ public class PlainText implements SourceFile, Tree {
 
     @Override
     public String getSourcePath() {
-        return null;
+        return sourcePath;
+    }
+
+    public String getText() {
+        return text;
     }
 
     public void setMetadata(Collection<Metadata> ignore) {
@@ -70,13 +81,13 @@ public class PlainText implements SourceFile, Tree {
     }
 
     public PlainText withText(String toText) {
-        return new PlainText(id, toText, formatting, styles);
+        return text.equals(toText) ? this : new PlainText(id, sourcePath, toText, formatting, styles);
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public <T extends Tree> T withFormatting(Formatting fmt) {
-        return (T) new PlainText(id, text, fmt, styles);
+        return (T) new PlainText(id, sourcePath, text, fmt, styles);
     }
 
     @Override
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
+import org.junit.jupiter.api.Test
+import org.openrewrite.text.ChangeText
+import org.openrewrite.text.PlainText
+
+class RefactorTest {
+    private val text = PlainText(Tree.randomId(), "Hi Jon", Formatting.EMPTY, emptyList())
+
+    @Test
+    fun fixedMatchesFix() {
+        val changeText = ChangeText().apply { toText = "Hello Jon" }
+
+        val fixed = Refactor().visit(changeText).fixed(text)
+        val change = Refactor().visit(changeText).fix(listOf(text)).single()
+
+        assertThat(fixed.printTrimmed()).isEqualTo("Hello Jon")
+        assertThat(change.fixed!!.printTrimmed()).isEqualTo(fixed.printTrimmed())
+    }
+
+    @Test
+    fun fixedReturnsUnchangedSource() {
+        val changeText = ChangeText().apply { toText = "Hi Jon" }
+        assertThat(Refactor().visit(changeText).fixed(text)).isSameAs(text)
+    }
+
+    @Test
+    fun fixedRejectsGeneratedSources() {
+        val generated = PlainText(Tree.randomId(), "generated", Formatting.EMPTY, emptyList())
+        val generating = object : AbstractRefactorVisitor<PlainText>() {
+            override fun generate(): Collection<SourceFile> = listOf(generated)
+        }
+
+        assertThatThrownBy { Refactor().visit(generating).fixed(text) }
+                .isInstanceOf(IllegalStateException::class.java)
+        assertThat(Refactor().visit(generating).fix(listOf(text)).map { it.fixed }).contains(generated)
+    }
+
+    @Test
+    fun andThenOutsideOfRefactor() {
+        val changeText = ChangeText().apply { toText = "Hello Jon" }
+        val scheduling = object : AbstractRefactorVisitor<PlainText>() {
+            override fun visitTree(tree: Tree): PlainText {
+                andThen(changeText)
+                return tree as PlainText
+            }
+        }
+
+        // used directly, the caller runs the scheduled visitors itself
+        scheduling.visit(text)
+        assertThat(scheduling.andThen()).containsExactly(changeText)
+        @Suppress("DEPRECATION")
+        scheduling.next()
+        assertThat(scheduling.andThen()).isEmpty()
+
+        assertThat(Refactor().visit(scheduling).fixed(text).printTrimmed()).isEqualTo("Hello Jon")
+        assertThat(scheduling.andThen()).isEmpty()
+    }
+
+    @Test
+    fun sampleVisitTimers() {
+        val changeText = ChangeText().apply { toText = "Hello Jon" }
+        val meterRegistry = SimpleMeterRegistry()
+        val refactor = Refactor().visit(changeText).setMeterRegistry(meterRegistry)
+
+        // each run visits twice, changing the text in the first cycle and confirming nothing changes in the second
+        refactor.fixed(text)
+        assertThat(meterRegistry.get("rewrite.refactor.visit").timer().count()).isEqualTo(2)
+
+        refactor.setVisitTimerSampling(2)
+        refactor.fixed(text)
+        refactor.fixed(text)
+        assertThat(meterRegistry.get("rewrite.refactor.visit").timer().count()).isEqualTo(4)
+        assertThat(meterRegistry.get("rewrite.refactor.plan.changes").counter().count()).isEqualTo(3.0)
+
+        refactor.setVisitTimerSampling(0)
+        refactor.fixed(text)
+        assertThat(meterRegistry.get("rewrite.refactor.visit").timer().count()).isEqualTo(4)
+    }
+
+    @Test
+    fun profileVisitors() {
+        val changeText = ChangeText().apply { toText = "Hello Jon" }
+        val profile = RefactorProfile()
+
+        Refactor().visit(changeText).setProfile(profile).fixed(text)
+
+        val entry = profile.entries.single()
+        assertThat(entry.visitor).isEqualTo(changeText.name)
+        assertThat(entry.treeType).isEqualTo("PlainText")
+        assertThat(entry.visits).isEqualTo(2)
+        assertThat(entry.visitedTrees).isEqualTo(2)
+        assertThat(entry.changes).isEqualTo(1)
+        assertThat(profile.report()).contains(changeText.name)
+    }
+}
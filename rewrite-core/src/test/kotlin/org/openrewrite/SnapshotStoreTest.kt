@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.openrewrite.text.PlainText
+import java.nio.file.Path
+
+class SnapshotStoreTest {
+    private fun text(path: String, text: String) =
+            PlainText(Tree.randomId(), path, text, Formatting.EMPTY, emptyList())
+
+    @Test
+    fun unchangedSourcesAreStoredOnce(@TempDir tempDir: Path) {
+        SnapshotStore<PlainText>(tempDir, "classpath").use { store ->
+            store.commit("1", listOf(text("a.txt", "a"), text("b.txt", "b")))
+            store.commit("2", listOf(text("a.txt", "a"), text("b.txt", "b2"), text("c.txt", "c")))
+
+            assertThat(store.snapshots).containsExactly("1", "2")
+            assertThat(store.load("1").map { it.text }).containsExactly("a", "b")
+            assertThat(store.load("2").map { it.text }).containsExactly("a", "b2", "c")
+            assertThat(store.load("2").sourcePaths).containsExactly("a.txt", "b.txt", "c.txt")
+        }
+
+        SnapshotStore<PlainText>(tempDir, "classpath").use { reopened ->
+            assertThat(reopened.load("1").map { it.text }).containsExactly("a", "b")
+            assertThat(reopened.contains(reopened.contentHash("a.txt", "a".toByteArray()))).isTrue()
+            assertThat(reopened.contains(reopened.contentHash("a.txt", "changed".toByteArray()))).isFalse()
+        }
+    }
+
+    @Test
+    fun sourcesParsedAgainstAnotherClasspathAreStoredAnew(@TempDir tempDir: Path) {
+        SnapshotStore<PlainText>(tempDir, "classpath").use { store ->
+            store.commit("1", listOf(text("a.txt", "a")))
+        }
+
+        SnapshotStore<PlainText>(tempDir, "changed classpath").use { store ->
+            assertThat(store.contains(store.contentHash("a.txt", "a".toByteArray()))).isFalse()
+
+            store.commit("2", listOf(text("a.txt", "a")))
+            assertThat(store.load("1").map { it.text }).containsExactly("a")
+            assertThat(store.load("2").map { it.text }).containsExactly("a")
+        }
+    }
+
+    @Test
+    fun deleteSnapshotKeepsSourcesOfOtherSnapshots(@TempDir tempDir: Path) {
+        SnapshotStore<PlainText>(tempDir, "classpath").use { store ->
+            store.commit("1", listOf(text("a.txt", "a"), text("b.txt", "b")))
+            store.commit("2", listOf(text("a.txt", "a")))
+
+            assertThat(store.delete("1")).isTrue()
+            assertThat(store.delete("1")).isFalse()
+
+            assertThat(store.snapshots).containsExactly("2")
+            assertThat(store.load("2").map { it.text }).containsExactly("a")
+        }
+    }
+}
@@ -15,8 +15,17 @@
  */
 package org.openrewrite
 
+import com.fasterxml.jackson.annotation.JsonInclude
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.dataformat.smile.SmileFactory
 import org.assertj.core.api.Assertions.assertThat
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.nio.file.Files
+import java.nio.file.Path
 import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.openrewrite.text.ChangeText
 import org.openrewrite.text.PlainText
 import org.openrewrite.text.TextStyle
 
@@ -37,4 +46,104 @@ class TreeSerializerTest {
         val deserialized = serializer.readList(serialized)
         assertThat(deserialized[0].getStyle(TextStyle::class.java).map { it.charset }.orElse(null)).isEqualTo("UTF-8")
     }
+
+    @Test
+    fun readArchiveAsList() {
+        val serializer = TreeSerializer<PlainText>()
+
+        val sources = listOf(
+                PlainText(Tree.randomId(), "hi Jon", Formatting.EMPTY, emptyList()),
+                PlainText(Tree.randomId(), "hi Jonathan", Formatting.EMPTY, emptyList())
+        )
+        val archive = serializer.writeArchive(sources)
+
+        assertThat(serializer.readList(archive).map { it.id }).containsExactlyElementsOf(sources.map { it.id })
+        assertThat(serializer.readList(ByteArrayInputStream(archive)).map { it.id })
+                .containsExactlyElementsOf(sources.map { it.id })
+    }
+
+    @Test
+    fun readArchiveLazily(@TempDir tempDir: Path) {
+        val serializer = TreeSerializer<PlainText>()
+
+        val sources = (1..100).map { PlainText(Tree.randomId(), "text $it", Formatting.EMPTY, emptyList()) }
+        val archive = tempDir.resolve("sources.lst")
+        Files.newOutputStream(archive).use { out -> serializer.writeArchive(sources, out) }
+
+        serializer.readLazy(archive).use { lazySources ->
+            assertThat(lazySources).hasSize(100)
+            assertThat(lazySources[42].id).isEqualTo(sources[42].id)
+            assertThat(lazySources[42]).isSameAs(lazySources[42])
+        }
+    }
+
+    @Test
+    fun refactorLazySources() {
+        val serializer = TreeSerializer<PlainText>()
+
+        val sources = (1..10).map { PlainText(Tree.randomId(), "text $it", Formatting.EMPTY, emptyList()) }
+        val lazySources = serializer.readLazy(serializer.writeArchive(sources))
+
+        val changes = Refactor().visit(ChangeText().apply { toText = "changed" }).fix(lazySources)
+
+        assertThat(changes.map { it.fixed!!.id }.toSet()).isEqualTo(sources.map { it.id }.toSet())
+        assertThat(changes.map { it.fixed!!.print() }).containsOnly("changed")
+    }
+
+    @Test
+    fun streamArchive() {
+        val serializer = TreeSerializer<PlainText>()
+
+        val sources = (1..100).map { PlainText(Tree.randomId(), "text $it", Formatting.EMPTY, emptyList()) }
+        val out = ByteArrayOutputStream()
+        serializer.archiveWriter(out, true).use { writer -> sources.forEach { writer.write(it) } }
+
+        serializer.readArchive(ByteArrayInputStream(out.toByteArray())).use { reader ->
+            assertThat(reader.asSequence().map { it.id }.toList()).containsExactlyElementsOf(sources.map { it.id })
+        }
+        assertThat(serializer.readLazy(out.toByteArray())[42].text).isEqualTo("text 43")
+    }
+
+    @Test
+    fun readArchiveInParallel(@TempDir tempDir: Path) {
+        val serializer = TreeSerializer<PlainText>()
+
+        val sources = (1..1000).map { PlainText(Tree.randomId(), "text $it", Formatting.EMPTY, emptyList()) }
+        val archive = tempDir.resolve("sources.lst")
+        Files.newOutputStream(archive).use { out -> serializer.writeArchive(sources, out) }
+
+        assertThat(serializer.readList(archive, 4).map { it.id }).containsExactlyElementsOf(sources.map { it.id })
+    }
+
+    @Test
+    fun roundTripFormatting() {
+        val serializer = TreeSerializer<PlainText>()
+
+        val formattings = listOf(
+                Formatting.EMPTY,
+                Formatting.format(" "),
+                Formatting.format("\n\t\t"),
+                Formatting.format("\n\n    "),
+                Formatting.format("\n    // comment\n    "),
+                Formatting.format("\n", " ")
+        )
+        val sources = (formattings + formattings).map { PlainText(Tree.randomId(), "text", it, emptyList()) }
+
+        assertThat(serializer.readList(serializer.write(sources)).map { it.formatting })
+                .containsExactlyElementsOf(sources.map { it.formatting })
+        assertThat(serializer.readList(serializer.writeArchive(sources)).map { it.formatting })
+                .containsExactlyElementsOf(sources.map { it.formatting })
+    }
+
+    @Test
+    fun readFormattingWrittenAsObjects() {
+        // how sources were serialized before archives wrote formatting compactly
+        val plainMapper = ObjectMapper(SmileFactory()).setSerializationInclusion(JsonInclude.Include.NON_NULL)
+
+        val formatting = Formatting.format("\n    // comment\n    ", " ")
+        val sources = (1..3).map { PlainText(Tree.randomId(), "text", formatting, emptyList()) }
+
+        assertThat(TreeSerializer<PlainText>().readList(plainMapper.writeValueAsBytes(sources)).map { it.formatting })
+                .containsOnly(formatting)
+    }
 }
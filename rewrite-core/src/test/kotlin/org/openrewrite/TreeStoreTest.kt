@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.openrewrite.text.PlainText
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+
+class TreeStoreTest {
+    private fun text(path: String, text: String) =
+            PlainText(Tree.randomId(), path, text, Formatting.EMPTY, emptyList())
+
+    @Test
+    fun readSourceByPath(@TempDir tempDir: Path) {
+        TreeStore<PlainText>(tempDir.resolve("store.lst")).use { store ->
+            store.append(listOf(text("a.txt", "a"), text("b.txt", "b")))
+
+            assertThat(store.get("b.txt")?.text).isEqualTo("b")
+            assertThat(store.get("c.txt")).isNull()
+        }
+    }
+
+    @Test
+    fun appendedSourcesSupersedeSourcesWithTheSamePath(@TempDir tempDir: Path) {
+        val storePath = tempDir.resolve("store.lst")
+        TreeStore<PlainText>(storePath).use { store ->
+            store.append(listOf(text("a.txt", "a"), text("b.txt", "b")))
+            store.append(listOf(text("b.txt", "b2"), text("c.txt", "c")))
+
+            assertThat(store.sources.sourcePaths).containsExactly("a.txt", "b.txt", "c.txt")
+            assertThat(store.get("b.txt")?.text).isEqualTo("b2")
+        }
+
+        TreeStore<PlainText>(storePath).use { reopened ->
+            assertThat(reopened.sources.map { it.text }).containsExactly("a", "b2", "c")
+        }
+    }
+
+    @Test
+    fun refreshPicksUpSourcesAppendedByAnotherWriter(@TempDir tempDir: Path) {
+        val storePath = tempDir.resolve("store.lst")
+        TreeStore<PlainText>(storePath).use { reader ->
+            TreeStore<PlainText>(storePath).use { writer ->
+                writer.append(listOf(text("a.txt", "a")))
+            }
+
+            assertThat(reader.get("a.txt")).isNull()
+            reader.refresh()
+            assertThat(reader.get("a.txt")?.text).isEqualTo("a")
+        }
+    }
+
+    @Test
+    fun storesOfTheSameFileOpenAndCloseIndependently(@TempDir tempDir: Path) {
+        val storePath = tempDir.resolve("store.lst")
+        val first = TreeStore<PlainText>(storePath)
+        TreeStore<PlainText>(storePath).use { second ->
+            first.close()
+            first.close()
+            second.append(listOf(text("a.txt", "a")))
+        }
+
+        TreeStore<PlainText>(storePath).use { reopened ->
+            reopened.append(listOf(text("b.txt", "b")))
+            assertThat(reopened.sources.map { it.text }).containsExactly("a", "b")
+        }
+    }
+
+    @Test
+    fun recoverFromAnInterruptedAppend(@TempDir tempDir: Path) {
+        val storePath = tempDir.resolve("store.lst")
+        TreeStore<PlainText>(storePath).use { store ->
+            store.append(listOf(text("a.txt", "a")))
+        }
+
+        // an append that died before writing its index
+        Files.write(storePath, "not a record".toByteArray(), StandardOpenOption.APPEND)
+
+        TreeStore<PlainText>(storePath).use { store ->
+            assertThat(store.get("a.txt")?.text).isEqualTo("a")
+            store.append(listOf(text("b.txt", "b")))
+        }
+
+        TreeStore<PlainText>(storePath).use { reopened ->
+            assertThat(reopened.sources.map { it.text }).containsExactly("a", "b")
+        }
+    }
+
+    @Test
+    fun streamAppendedCompressedStore(@TempDir tempDir: Path) {
+        val storePath = tempDir.resolve("store.lst")
+        val serializer = TreeSerializer<PlainText>()
+        TreeStore(storePath, serializer, true).use { store ->
+            store.append(listOf(text("a.txt", "a"), text("b.txt", "b")))
+            store.append(listOf(text("b.txt", "b2")))
+        }
+
+        val streamed = Files.newInputStream(storePath).use { serializer.readList(it) }
+        assertThat(streamed.map { it.text }).containsExactly("a", "b2")
+    }
+}
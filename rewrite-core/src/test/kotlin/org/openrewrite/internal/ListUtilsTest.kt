@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.internal
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+
+class ListUtilsTest {
+    @Test
+    fun mapReturnsSameListWhenNothingChanges() {
+        val ls = listOf("a", "b", "c")
+        assertThat(ListUtils.map(ls) { it }).isSameAs(ls)
+    }
+
+    @Test
+    fun mapCopiesOnFirstChange() {
+        val ls = listOf("a", "b", "c")
+        val mapped = ListUtils.map(ls) { if (it == "b") "B" else it }
+        assertThat(mapped).isNotSameAs(ls).containsExactly("a", "B", "c")
+        assertThat(ls).containsExactly("a", "b", "c")
+    }
+
+    @Test
+    fun mapFirstAndLast() {
+        val ls = listOf("a", "b", "c")
+        assertThat(ListUtils.mapFirst(ls) { it }).isSameAs(ls)
+        assertThat(ListUtils.mapFirst(ls) { it.toUpperCase() }).containsExactly("A", "b", "c")
+        assertThat(ListUtils.mapLast(ls) { it.toUpperCase() }).containsExactly("a", "b", "C")
+        assertThat(ListUtils.mapLast(emptyList<String>()) { it.toUpperCase() }).isEmpty()
+    }
+}
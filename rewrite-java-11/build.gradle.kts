@@ -1,3 +1,7 @@
+plugins {
+    id("me.champeau.gradle.jmh") version "0.5.0"
+}
+
 dependencies {
     api(project(":rewrite-core"))
     api(project(":rewrite-java"))
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java;
+
+import org.openjdk.jmh.annotations.*;
+import org.openrewrite.Tree;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.search.FindType;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.NameTree;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traverses a compilation unit with many statements that mention {@code java.util.List}, once with a visitor that
+ * does nothing but count the trees it visits, which measures the dispatch and reduce overhead of the traversal
+ * itself, and once with {@link FindType}, whose results are reduced across every statement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JavaTraversalBenchmark {
+    @Param({"10", "100", "1000"})
+    int statements;
+
+    J.CompilationUnit cu;
+
+    @Setup
+    public void setup() {
+        StringBuilder source = new StringBuilder("import java.util.*;\npublic class A {\n    void foo() {\n");
+        for (int i = 0; i < statements; i++) {
+            source.append("        List<String> list").append(i).append(" = new ArrayList<>(Collections.singletonList(\"")
+                    .append(i).append("\"));\n");
+        }
+        source.append("    }\n}\n");
+
+        cu = Java11Parser.builder().build().parse(source.toString()).get(0);
+    }
+
+    @Benchmark
+    public Integer countTrees() {
+        return new AbstractJavaSourceVisitor<Integer>() {
+            @Override
+            public Integer defaultTo(@Nullable Tree t) {
+                return 0;
+            }
+
+            @Override
+            public Integer reduce(Integer r1, Integer r2) {
+                return r1 + r2;
+            }
+
+            @Override
+            public Integer visitTree(Tree tree) {
+                return 1;
+            }
+        }.visit(cu);
+    }
+
+    @Benchmark
+    public Set<NameTree> findType() {
+        return new FindType("java.util.List").visit(cu);
+    }
+}
@@ -1,3 +1,7 @@
+plugins {
+    id("me.champeau.gradle.jmh") version "0.5.0"
+}
+
 // run manually with -x compileKotlin when you need to regenerate
 tasks.register<JavaExec>("generateAntlrSources") {
     main = "org.antlr.v4.Tool"
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java;
+
+import org.openjdk.jmh.annotations.*;
+import org.openrewrite.Formatting;
+import org.openrewrite.java.tree.Flag;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static java.util.stream.Collectors.joining;
+import static org.openrewrite.Tree.randomId;
+
+/**
+ * Matches an invocation of {@code java.util.HashMap#put(Object, Object)}, whose declaring type is only matched by
+ * patterns naming a supertype, against common kinds of patterns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MethodMatcherBenchmark {
+    @Param({
+            "java.util.HashMap put(Object, Object)",
+            "java.util.AbstractMap put(..)",
+            "java.util.* put(..)",
+            "*..HashMap p*(Object, ..)",
+            "java.util.HashMap get(Object)"
+    })
+    String signature;
+
+    MethodMatcher matcher;
+    J.MethodInvocation put;
+
+    @Setup
+    public void setup() {
+        matcher = new MethodMatcher(signature);
+
+        JavaType.Class object = JavaType.Class.build("java.lang.Object");
+        JavaType.Class abstractMap = JavaType.Class.build("java.util.AbstractMap", Collections.emptyList(),
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), object);
+        JavaType.Class hashMap = JavaType.Class.build("java.util.HashMap", Collections.emptyList(),
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), abstractMap);
+
+        JavaType.Method.Signature putSignature = new JavaType.Method.Signature(object, Arrays.asList(object, object));
+        JavaType.Method putType = JavaType.Method.build(hashMap, "put", putSignature, putSignature,
+                Arrays.asList("key", "value"), Collections.singleton(Flag.Public));
+
+        put = new J.MethodInvocation(randomId(), null, null,
+                J.Ident.build(randomId(), "put", null, Formatting.EMPTY),
+                new J.MethodInvocation.Arguments(randomId(), Collections.emptyList(), Formatting.EMPTY),
+                putType, Formatting.EMPTY);
+    }
+
+    @Benchmark
+    public boolean compiled() {
+        return matcher.matches(put);
+    }
+
+    /**
+     * How {@link MethodMatcher} matched invocations before its patterns were compiled.
+     */
+    @Benchmark
+    public boolean regex() {
+        List<JavaType> paramTypes = put.getType().getResolvedSignature().getParamTypes();
+        String resolvedSignaturePattern = paramTypes.stream()
+                .map(type -> ((JavaType.Class) type).getFullyQualifiedName())
+                .collect(joining(","));
+        return matchesTargetType(matcher.getTargetTypePattern(), put.getType().getDeclaringType()) &&
+                matcher.getMethodNamePattern().matcher(put.getSimpleName()).matches() &&
+                matcher.getArgumentPattern().matcher(resolvedSignaturePattern).matches();
+    }
+
+    private static boolean matchesTargetType(Pattern targetTypePattern, JavaType.FullyQualified type) {
+        if (targetTypePattern.matcher(type.getFullyQualifiedName()).matches()) {
+            return true;
+        }
+        JavaType.Class supertype = ((JavaType.Class) type).getSupertype();
+        return supertype != null && matchesTargetType(targetTypePattern, supertype);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java;
+
+import org.openjdk.jmh.annotations.*;
+import org.openrewrite.Formatting;
+import org.openrewrite.java.tree.Flag;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.openrewrite.Tree.randomId;
+
+/**
+ * Matches an invocation of {@code java.util.HashMap#put(Object, Object)} against many signatures of the kind a large
+ * migration configures, one of which matches it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MethodMatcherSetBenchmark {
+    @Param({"10", "100", "1000"})
+    int signatures;
+
+    List<MethodMatcher> matchers;
+    MethodMatcherSet matcherSet;
+    J.MethodInvocation put;
+
+    @Setup
+    public void setup() {
+        List<String> signatures = new ArrayList<>(this.signatures);
+        for (int i = 0; i < this.signatures - 1; i++) {
+            signatures.add("org.example" + (i % 10) + ".Type" + i + " method" + i + "(String, ..)");
+        }
+        signatures.add("java.util.AbstractMap put(..)");
+
+        matchers = new ArrayList<>(signatures.size());
+        for (String signature : signatures) {
+            matchers.add(new MethodMatcher(signature));
+        }
+        matcherSet = new MethodMatcherSet(signatures);
+
+        JavaType.Class object = JavaType.Class.build("java.lang.Object");
+        JavaType.Class abstractMap = JavaType.Class.build("java.util.AbstractMap", Collections.emptyList(),
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), object);
+        JavaType.Class hashMap = JavaType.Class.build("java.util.HashMap", Collections.emptyList(),
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), abstractMap);
+
+        JavaType.Method.Signature putSignature = new JavaType.Method.Signature(object, Arrays.asList(object, object));
+        JavaType.Method putType = JavaType.Method.build(hashMap, "put", putSignature, putSignature,
+                Arrays.asList("key", "value"), Collections.singleton(Flag.Public));
+
+        put = new J.MethodInvocation(randomId(), null, null,
+                J.Ident.build(randomId(), "put", null, Formatting.EMPTY),
+                new J.MethodInvocation.Arguments(randomId(), Collections.emptyList(), Formatting.EMPTY),
+                putType, Formatting.EMPTY);
+    }
+
+    @Benchmark
+    public List<String> matcherSet() {
+        return matcherSet.matching(put);
+    }
+
+    @Benchmark
+    public int eachMatcher() {
+        int matches = 0;
+        for (MethodMatcher matcher : matchers) {
+            if (matcher.matches(put)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
@@ -20,9 +20,7 @@ import org.openrewrite.Cursor;
 import org.openrewrite.internal.lang.Nullable;
 import org.openrewrite.java.tree.*;
 
-import java.util.concurrent.atomic.AtomicBoolean;
-
-import static java.util.stream.Collectors.toList;
+import java.util.List;
 
 public abstract class AbstractJavaSourceVisitor<R> extends AbstractSourceVisitor<R> implements JavaSourceVisitor<R> {
     private R visitTypeNameAfter(R r, @Nullable NameTree name) {
@@ -40,6 +38,16 @@ public abstract class AbstractJavaSourceVisitor<R> extends AbstractSourceVisitor
         return r;
     }
 
+    private R visitDimensionSizesAfter(R r, List<J.NewArray.Dimension> dimensions) {
+        R sizes = defaultTo(null);
+        for (J.NewArray.Dimension dimension : dimensions) {
+            if (dimension.getSize() != null) {
+                sizes = reduce(sizes, visit(dimension.getSize()));
+            }
+        }
+        return reduce(r, sizes);
+    }
+
     public R visitStatement(Statement statement) {
         return defaultTo(statement);
     }
@@ -539,9 +547,9 @@ public abstract class AbstractJavaSourceVisitor<R> extends AbstractSourceVisitor
                         visitExpression(newArray),
                         visitTypeNameAfter(
                                 visitAfter(
-                                        visitAfter(
+                                        visitDimensionSizesAfter(
                                                 visit(newArray.getTypeExpr()),
-                                                newArray.getDimensions().stream().map(J.NewArray.Dimension::getSize).collect(toList())
+                                                newArray.getDimensions()
                                         ),
                                         newArray.getInitializer() == null ? null : newArray.getInitializer().getElements()
                                 ),
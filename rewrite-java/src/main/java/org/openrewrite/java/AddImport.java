@@ -21,7 +21,6 @@ import lombok.EqualsAndHashCode;
 import org.openrewrite.Formatting;
 import org.openrewrite.Validated;
 import org.openrewrite.internal.lang.Nullable;
-import org.openrewrite.java.search.FindType;
 import org.openrewrite.java.tree.J;
 import org.openrewrite.java.tree.JavaType;
 import org.openrewrite.java.tree.TreeBuilder;
@@ -86,8 +85,8 @@ public class AddImport extends JavaIsoRefactorVisitor {
         if(JavaType.Primitive.fromKeyword(classType.getFullyQualifiedName()) != null) {
             return cu;
         }
-        // note that using anyMatch here would return true for an empty list returned by FindType!
-        @SuppressWarnings("SimplifyStreamApiCallChains") boolean hasReferences = new FindType(type).visit(cu).stream()
+        // note that using anyMatch here would return true for an empty list returned by findType!
+        @SuppressWarnings("SimplifyStreamApiCallChains") boolean hasReferences = cu.findType(type).stream()
                 .filter(t -> !(t instanceof J.FieldAccess) || !((J.FieldAccess) t).isFullyQualifiedClassReference(type))
                 .findAny()
                 .isPresent();
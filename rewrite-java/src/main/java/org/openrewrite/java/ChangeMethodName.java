@@ -46,6 +46,11 @@ public class ChangeMethodName extends JavaIsoRefactorVisitor {
                 .and(required("name", name));
     }
 
+    @Override
+    public J.CompilationUnit visitCompilationUnit(J.CompilationUnit cu) {
+        return methodMatcher.mayMatch(cu) ? super.visitCompilationUnit(cu) : cu;
+    }
+
     @Override
     public J.MethodDecl visitMethod(J.MethodDecl method) {
         J.MethodDecl m = super.visitMethod(method);
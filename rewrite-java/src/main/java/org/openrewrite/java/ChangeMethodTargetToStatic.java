@@ -33,6 +33,10 @@ public class ChangeMethodTargetToStatic extends JavaIsoRefactorVisitor {
     private MethodMatcher methodMatcher;
     private String targetType;
 
+    public ChangeMethodTargetToStatic() {
+        setSkipIrrelevantSubtreesOn();
+    }
+
     public void setMethod(String method) {
         this.methodMatcher = new MethodMatcher(method);
     }
@@ -47,6 +51,11 @@ public class ChangeMethodTargetToStatic extends JavaIsoRefactorVisitor {
                 .and(required("target.type", targetType));
     }
 
+    @Override
+    public J.CompilationUnit visitCompilationUnit(J.CompilationUnit cu) {
+        return methodMatcher.isInvokedIn(cu) ? super.visitCompilationUnit(cu) : cu;
+    }
+
     @Override
     public J.MethodInvocation visitMethodInvocation(J.MethodInvocation method) {
         if(methodMatcher.matches(method)) {
@@ -33,6 +33,10 @@ public class ChangeMethodTargetToVariable extends JavaIsoRefactorVisitor {
     private String variable;
     private JavaType.Class variableType;
 
+    public ChangeMethodTargetToVariable() {
+        setSkipIrrelevantSubtreesOn();
+    }
+
     public void setMethod(String method) {
         this.methodMatcher = new MethodMatcher(method);
     }
@@ -52,6 +56,11 @@ public class ChangeMethodTargetToVariable extends JavaIsoRefactorVisitor {
                 .and(required("variable.type", variableType.getFullyQualifiedName()));
     }
 
+    @Override
+    public J.CompilationUnit visitCompilationUnit(J.CompilationUnit cu) {
+        return methodMatcher.isInvokedIn(cu) ? super.visitCompilationUnit(cu) : cu;
+    }
+
     @Override
     public J.MethodInvocation visitMethodInvocation(J.MethodInvocation method) {
         if(methodMatcher.matches(method)) {
@@ -50,6 +50,11 @@ public class DeleteMethodArgument extends JavaIsoRefactorVisitor {
                 .and(required("index", index));
     }
 
+    @Override
+    public J.CompilationUnit visitCompilationUnit(J.CompilationUnit cu) {
+        return methodMatcher.isInvokedIn(cu) ? super.visitCompilationUnit(cu) : cu;
+    }
+
     @Override
     public J.MethodInvocation visitMethodInvocation(J.MethodInvocation method) {
         if(methodMatcher.matches(method)) {
@@ -58,6 +58,11 @@ public class InsertMethodArgument extends JavaIsoRefactorVisitor {
         return false;
     }
 
+    @Override
+    public J.CompilationUnit visitCompilationUnit(J.CompilationUnit cu) {
+        return methodMatcher.isInvokedIn(cu) ? super.visitCompilationUnit(cu) : cu;
+    }
+
     @Override
     public J.MethodInvocation visitMethodInvocation(J.MethodInvocation method) {
         if(methodMatcher.matches(method)) {
@@ -17,10 +17,12 @@ package org.openrewrite.java;
 
 import org.openrewrite.Cursor;
 import org.openrewrite.SourceVisitor;
+import org.openrewrite.Tree;
 import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.search.NameScopes;
 import org.openrewrite.java.tree.*;
 
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Iterator;
 
 public interface JavaSourceVisitor<R> extends SourceVisitor<R> {
 
@@ -46,23 +48,28 @@ public interface JavaSourceVisitor<R> extends SourceVisitor<R> {
     }
 
     default boolean isInSameNameScope(Cursor higher, Cursor lower) {
-        AtomicBoolean takeWhile = new AtomicBoolean(true);
-        return higher.getPathAsStream()
-                .filter(t -> t instanceof J.Block ||
-                        t instanceof J.MethodDecl ||
-                        t instanceof J.Try ||
-                        t instanceof J.ForLoop ||
-                        t instanceof J.ForEachLoop).findAny()
-                .map(higherNameScope -> lower.getPathAsStream()
-                        .filter(t -> {
-                            takeWhile.set(takeWhile.get() && (
-                                    !(t instanceof J.ClassDecl) ||
-                                            (((J.ClassDecl) t).getKind() instanceof J.ClassDecl.Kind.Class &&
-                                                    !((J.ClassDecl) t).hasModifier("static"))));
-                            return takeWhile.get();
-                        })
-                        .anyMatch(higherNameScope::equals))
-                .orElse(false);
+        Tree higherNameScope = null;
+        for (Iterator<Tree> path = higher.getPath(); path.hasNext(); ) {
+            Tree t = path.next();
+            if (NameScopes.isNameScope(t)) {
+                higherNameScope = t;
+                break;
+            }
+        }
+        if (higherNameScope == null) {
+            return false;
+        }
+
+        for (Iterator<Tree> path = lower.getPath(); path.hasNext(); ) {
+            Tree t = path.next();
+            if (NameScopes.isNameScopeBoundary(t)) {
+                return false;
+            }
+            if (higherNameScope.equals(t)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
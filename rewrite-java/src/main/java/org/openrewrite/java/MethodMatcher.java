@@ -15,6 +15,7 @@
  */
 package org.openrewrite.java;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.NonFinal;
@@ -22,44 +23,112 @@ import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.internal.SignatureCache;
 import org.openrewrite.java.internal.grammar.AspectJLexer;
 import org.openrewrite.java.internal.grammar.RefactorMethodSignatureParser;
 import org.openrewrite.java.internal.grammar.RefactorMethodSignatureParserBaseVisitor;
-import org.openrewrite.java.tree.Expression;
-import org.openrewrite.java.tree.J;
-import org.openrewrite.java.tree.JavaType;
-import org.openrewrite.java.tree.TypeUtils;
+import org.openrewrite.java.search.ReferenceSummary;
+import org.openrewrite.java.search.SourceTokens;
+import org.openrewrite.java.tree.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
 import java.util.regex.Pattern;
 
 import static java.util.stream.Collectors.joining;
 
+/**
+ * Matches method invocations, declarations and constructor calls against an AspectJ-style method signature pattern.
+ * <p>
+ * The pattern is compiled once, into exact comparisons where it has no wildcards and into a small backtracking
+ * matcher over the segments of a name where it does, so that matching doesn't build strings or run regular
+ * expressions. The regular expressions returned by {@link #getTargetTypePattern()}, {@link #getMethodNamePattern()}
+ * and {@link #getArgumentPattern()} are generated from the compiled pattern, so they agree with it: a {@code .} in
+ * the signature matches only a {@code .}, and a {@code *} formal type matches exactly one parameter, so that
+ * {@code foo(*)} matches neither {@code foo()} nor {@code foo(int, int)}.
+ * <p>
+ * Compiled patterns are cached process-wide by signature, so constructing a matcher for a signature that was recently
+ * compiled doesn't parse it again.
+ */
 @Getter
 public class MethodMatcher {
-    private Pattern targetTypePattern;
-    private Pattern methodNamePattern;
-    private Pattern argumentPattern;
+    /**
+     * Matchers are immutable once compiled, so every matcher of the same signature shares the compiled patterns.
+     */
+    private static final SignatureCache<MethodMatcher> COMPILED = new SignatureCache<>(2048);
+
+    private final Pattern targetTypePattern;
+    private final Pattern methodNamePattern;
+    private final Pattern argumentPattern;
+
+    @Getter(AccessLevel.NONE)
+    private final NamePattern targetType;
+
+    @Getter(AccessLevel.NONE)
+    private final NamePattern methodName;
+
+    @Getter(AccessLevel.NONE)
+    private final ArgumentsPattern arguments;
 
     public MethodMatcher(String signature) {
-        RefactorMethodSignatureParser parser = new RefactorMethodSignatureParser(new CommonTokenStream(new AspectJLexer(
-                CharStreams.fromString(signature))));
+        this(COMPILED.get(signature, MethodMatcher::parse));
+    }
 
-        new RefactorMethodSignatureParserBaseVisitor<Void>() {
-            @Override
-            public Void visitMethodPattern(RefactorMethodSignatureParser.MethodPatternContext ctx) {
-                targetTypePattern = Pattern.compile(new TypeVisitor().visitTargetTypePattern(ctx.targetTypePattern()));
-                methodNamePattern = Pattern.compile(ctx.simpleNamePattern().children.stream()
-                        .map(c -> AspectjUtils.aspectjNameToPattern(c.toString()))
-                        .collect(joining("")));
-                argumentPattern = Pattern.compile(new FormalParameterVisitor().visitFormalParametersPattern(
-                        ctx.formalParametersPattern()));
-                return null;
-            }
-        }.visit(parser.methodPattern());
+    private MethodMatcher(MethodMatcher compiled) {
+        this.targetTypePattern = compiled.targetTypePattern;
+        this.methodNamePattern = compiled.methodNamePattern;
+        this.argumentPattern = compiled.argumentPattern;
+        this.targetType = compiled.targetType;
+        this.methodName = compiled.methodName;
+        this.arguments = compiled.arguments;
+    }
+
+    private MethodMatcher(RefactorMethodSignatureParser.MethodPatternContext ctx) {
+        this.targetType = NamePattern.compile(new TypeVisitor().visitTargetTypePattern(ctx.targetTypePattern()));
+        this.targetTypePattern = Pattern.compile(targetType.toRegex());
+
+        this.methodName = NamePattern.compile(ctx.simpleNamePattern().children.stream()
+                .map(c -> AspectjUtils.aspectjNameToPattern(c.toString()))
+                .collect(joining("")));
+        this.methodNamePattern = Pattern.compile(methodName.toRegex());
+
+        FormalParameterVisitor formalParameters = new FormalParameterVisitor();
+        String argumentRegex = formalParameters.visitFormalParametersPattern(ctx.formalParametersPattern());
+        this.arguments = ArgumentsPattern.compile(formalParameters.getFormalTypeRegexes(), argumentRegex);
+        this.argumentPattern = Pattern.compile(arguments.toRegex());
+    }
+
+    private static MethodMatcher parse(String signature) {
+        return new MethodMatcher(new RefactorMethodSignatureParser(new CommonTokenStream(new AspectJLexer(
+                CharStreams.fromString(signature)))).methodPattern());
+    }
+
+    /**
+     * @param simpleName The simple name of a method.
+     * @return Whether methods of this name can match, whatever their declaring type and parameters are.
+     */
+    public boolean matchesMethodName(String simpleName) {
+        return methodName.matches(simpleName);
+    }
+
+    /**
+     * @param cu A compilation unit.
+     * @return {@code false} if the compilation unit certainly has no matching methods, because it doesn't mention
+     * their name, otherwise {@code true}.
+     */
+    public boolean mayMatch(J.CompilationUnit cu) {
+        String exactMethodName = methodName.getExactName();
+        return exactMethodName == null || SourceTokens.of(cu).mayContain(exactMethodName);
+    }
+
+    /**
+     * @param cu A compilation unit.
+     * @return Whether the compilation unit invokes a matching method, answered from its {@link ReferenceSummary} so
+     * that the many visitors that ask this of an unchanged compilation unit share a single traversal of it.
+     */
+    public boolean isInvokedIn(J.CompilationUnit cu) {
+        return mayMatch(cu) && ReferenceSummary.of(cu).hasMethodCall(this);
     }
 
     public boolean matches(J.MethodDecl method, J.ClassDecl enclosing) {
@@ -67,27 +136,19 @@ public class MethodMatcher {
             return false;
         }
 
-        String signaturePattern = method.getParams().getParams().stream()
-                .map(v -> {
-                    if(v instanceof J.VariableDecls) {
-                        J.VariableDecls vd = (J.VariableDecls)v;
-                        if(vd.getTypeAsClass() != null) {
-                            return vd.getTypeAsClass();
-                        } else {
-                            return vd.getTypeExpr() != null ? vd.getTypeExpr().getType() : null;
-                        }
-                    } else {
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
-                .map(this::typePattern)
-                .filter(Objects::nonNull)
-                .collect(joining(","));
+        List<String> parameterTypes = new ArrayList<>(method.getParams().getParams().size());
+        for (Statement param : method.getParams().getParams()) {
+            if (param instanceof J.VariableDecls) {
+                J.VariableDecls vd = (J.VariableDecls) param;
+                JavaType type = vd.getTypeAsClass() != null ? vd.getTypeAsClass() :
+                        vd.getTypeExpr() != null ? vd.getTypeExpr().getType() : null;
+                addTypePattern(parameterTypes, type);
+            }
+        }
 
         return matchesTargetType(TypeUtils.asClass(enclosing.getType())) &&
-                methodNamePattern.matcher(method.getSimpleName()).matches() &&
-                argumentPattern.matcher(signaturePattern).matches();
+                methodName.matches(method.getSimpleName()) &&
+                arguments.matches(parameterTypes);
     }
 
     public boolean matches(J.MethodInvocation method) {
@@ -100,45 +161,87 @@ public class MethodMatcher {
             return false;
         }
 
-        String resolvedSignaturePattern = method.getType().getResolvedSignature().getParamTypes().stream()
-                .map(this::typePattern)
-                .filter(Objects::nonNull)
-                .collect(joining(","));
+        // the name is the cheapest to compare and the most selective, so it goes first
+        if (!methodName.matches(method.getSimpleName()) || !matchesTargetType(method.getType().getDeclaringType())) {
+            return false;
+        }
 
-        return matchesTargetType(method.getType().getDeclaringType()) &&
-                methodNamePattern.matcher(method.getSimpleName()).matches() &&
-                argumentPattern.matcher(resolvedSignaturePattern).matches();
+        return arguments.matches(parameterTypes(method.getType().getResolvedSignature().getParamTypes()));
     }
 
     public boolean matches(J.NewClass constructor) {
         if (constructor.getType() == null) {
             return false;
         }
-        String signaturePattern = Optional.ofNullable(constructor.getArgs())
-                .map(args ->
-                        args.getArgs().stream()
-                                .map(Expression::getType)
-                                .map(this::typePattern)
-                                .filter(Objects::nonNull)
-                                .collect(joining(","))
-                ).orElse("");
+
+        List<String> parameterTypes = new ArrayList<>();
+        if (constructor.getArgs() != null) {
+            for (Expression arg : constructor.getArgs().getArgs()) {
+                addTypePattern(parameterTypes, arg.getType());
+            }
+        }
 
         JavaType.Class type = TypeUtils.asClass(constructor.getType());
         assert type != null;
         return matchesTargetType(type) &&
-                methodNamePattern.matcher(type.getClassName()).matches() &&
-                argumentPattern.matcher(signaturePattern).matches();
+                methodName.matches(type.getClassName()) &&
+                arguments.matches(parameterTypes);
     }
 
     boolean matchesTargetType(@Nullable JavaType.FullyQualified type) {
-        JavaType.Class asClass = TypeUtils.asClass(type);
-        return type != null && (targetTypePattern.matcher(type.getFullyQualifiedName()).matches() ||
-                type != JavaType.Class.OBJECT &&
-                        (asClass == null || matchesTargetType(asClass.getSupertype() == null ? JavaType.Class.OBJECT : asClass.getSupertype())));
+        while (type != null) {
+            if (targetType.matches(type.getFullyQualifiedName())) {
+                return true;
+            }
+            if (type == JavaType.Class.OBJECT) {
+                return false;
+            }
+            JavaType.Class asClass = TypeUtils.asClass(type);
+            if (asClass == null) {
+                return true;
+            }
+            type = asClass.getSupertype() == null ? JavaType.Class.OBJECT : asClass.getSupertype();
+        }
+        return false;
     }
 
+    /**
+     * @return The method name that every match has, or {@code null} if the pattern has wildcards.
+     */
     @Nullable
-    private String typePattern(JavaType type) {
+    public String getExactMethodName() {
+        return methodName.getExactName();
+    }
+
+    /**
+     * @return The type that every match is declared by or inherited from, or {@code null} if the pattern has wildcards.
+     */
+    @Nullable
+    public String getExactTargetType() {
+        return targetType.getExactName();
+    }
+
+    boolean matchesArguments(List<String> parameterTypes) {
+        return arguments.matches(parameterTypes);
+    }
+
+    static List<String> parameterTypes(List<JavaType> paramTypes) {
+        List<String> parameterTypes = new ArrayList<>(paramTypes.size());
+        for (JavaType paramType : paramTypes) {
+            addTypePattern(parameterTypes, paramType);
+        }
+        return parameterTypes;
+    }
+
+    private static void addTypePattern(List<String> parameterTypes, @Nullable JavaType type) {
+        String typePattern = typePattern(type);
+        if (typePattern != null) {
+            parameterTypes.add(typePattern);
+        }
+    }
+
+    @Nullable
+    private static String typePattern(@Nullable JavaType type) {
         if (type instanceof JavaType.Primitive) {
             return ((JavaType.Primitive) type).getKeyword();
         } else if (type instanceof JavaType.Class) {
@@ -150,6 +253,329 @@ public class MethodMatcher {
     }
 }
 
+/**
+ * A compiled type or method name pattern. Names without wildcards are compared exactly. Otherwise the name is
+ * matched segment by segment, where {@code *} matches any run of characters other than {@code .} and {@code ..}
+ * matches a {@code .} optionally followed by any characters and another {@code .}.
+ */
+abstract class NamePattern {
+    abstract boolean matches(String name);
+
+    /**
+     * @return A regular expression that matches the same names. Names never contain a {@code ,}, so no wildcard
+     * matches one, which lets the regular expressions of formal types be joined into one for a parameter list.
+     */
+    abstract String toRegex();
+
+    /**
+     * @return The only name that matches, or {@code null} if the pattern has wildcards.
+     */
+    @Nullable
+    String getExactName() {
+        return null;
+    }
+
+    /**
+     * @param regex The regular expression that {@link TypeVisitor} or {@link AspectjUtils} produced for the pattern.
+     * @return The compiled pattern, which falls back to the regular expression if it uses constructs that can't
+     * be compiled.
+     */
+    static NamePattern compile(String regex) {
+        List<Object> segments = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < regex.length(); ) {
+            if (regex.startsWith(DOT_DOT_REGEX, i)) {
+                addLiteral(segments, literal);
+                segments.add(Wildcard.DOT_DOT);
+                i += DOT_DOT_REGEX.length();
+            } else if (regex.startsWith(STAR_REGEX, i)) {
+                addLiteral(segments, literal);
+                segments.add(Wildcard.STAR);
+                i += STAR_REGEX.length();
+            } else if (regex.charAt(i) == '\\' && i + 1 < regex.length() && ".[]".indexOf(regex.charAt(i + 1)) >= 0) {
+                literal.append(regex.charAt(i + 1));
+                i += 2;
+            } else if ("\\()[]{}|?+*^$".indexOf(regex.charAt(i)) >= 0) {
+                return new RegexNamePattern(Pattern.compile(regex));
+            } else {
+                // an unescaped '.' can only come from a '.' in the signature, which is meant literally
+                literal.append(regex.charAt(i++));
+            }
+        }
+        addLiteral(segments, literal);
+
+        if (segments.isEmpty()) {
+            return new ExactNamePattern("");
+        }
+        if (segments.size() == 1 && segments.get(0) instanceof String) {
+            return new ExactNamePattern((String) segments.get(0));
+        }
+        return new WildcardNamePattern(segments.toArray());
+    }
+
+    private static final String DOT_DOT_REGEX = "\\.(.+\\.)?";
+    private static final String STAR_REGEX = "[^.]*";
+
+    private static String escape(String literal) {
+        StringBuilder regex = new StringBuilder(literal.length());
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (c == '.' || c == '[' || c == ']') {
+                regex.append('\\');
+            }
+            regex.append(c);
+        }
+        return regex.toString();
+    }
+
+    private enum Wildcard {
+        STAR,
+        DOT_DOT
+    }
+
+    private static void addLiteral(List<Object> segments, StringBuilder literal) {
+        if (literal.length() > 0) {
+            segments.add(literal.toString());
+            literal.setLength(0);
+        }
+    }
+
+    private static class ExactNamePattern extends NamePattern {
+        private final String name;
+
+        ExactNamePattern(String name) {
+            this.name = name;
+        }
+
+        @Override
+        boolean matches(String name) {
+            return this.name.equals(name);
+        }
+
+        @Override
+        String getExactName() {
+            return name;
+        }
+
+        @Override
+        String toRegex() {
+            return escape(name);
+        }
+    }
+
+    private static class WildcardNamePattern extends NamePattern {
+        /**
+         * Literal strings and {@link Wildcard wildcards}.
+         */
+        private final Object[] segments;
+
+        /**
+         * Every name matching the pattern starts and ends with these, which rules out most names without backtracking.
+         */
+        private final String prefix;
+        private final String suffix;
+
+        WildcardNamePattern(Object[] segments) {
+            this.segments = segments;
+            this.prefix = segments[0] instanceof String ? (String) segments[0] : "";
+            this.suffix = segments[segments.length - 1] instanceof String ? (String) segments[segments.length - 1] : "";
+        }
+
+        @Override
+        boolean matches(String name) {
+            return name.length() >= prefix.length() + suffix.length() &&
+                    name.startsWith(prefix) &&
+                    name.endsWith(suffix) &&
+                    matches(name, 0, 0);
+        }
+
+        private boolean matches(String name, int segment, int pos) {
+            if (segment == segments.length) {
+                return pos == name.length();
+            }
+
+            Object s = segments[segment];
+            if (s instanceof String) {
+                String literal = (String) s;
+                return name.startsWith(literal, pos) && matches(name, segment + 1, pos + literal.length());
+            }
+
+            if (s == Wildcard.STAR) {
+                int end = name.indexOf('.', pos);
+                for (int i = end == -1 ? name.length() : end; i >= pos; i--) {
+                    if (matches(name, segment + 1, i)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            // DOT_DOT
+            if (pos >= name.length() || name.charAt(pos) != '.') {
+                return false;
+            }
+            if (matches(name, segment + 1, pos + 1)) {
+                return true;
+            }
+            for (int dot = name.indexOf('.', pos + 2); dot != -1; dot = name.indexOf('.', dot + 1)) {
+                if (matches(name, segment + 1, dot + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        String toRegex() {
+            StringBuilder regex = new StringBuilder();
+            for (Object s : segments) {
+                if (s == Wildcard.STAR) {
+                    regex.append("[^.,]*");
+                } else if (s == Wildcard.DOT_DOT) {
+                    regex.append("\\.([^,]+\\.)?");
+                } else {
+                    regex.append(escape((String) s));
+                }
+            }
+            return regex.toString();
+        }
+    }
+
+    static class RegexNamePattern extends NamePattern {
+        private final Pattern pattern;
+
+        RegexNamePattern(Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        @Override
+        boolean matches(String name) {
+            return pattern.matcher(name).matches();
+        }
+
+        @Override
+        String toRegex() {
+            return pattern.pattern();
+        }
+    }
+}
+
+/**
+ * A compiled formal parameters pattern, matched against the parameter types of a method one type at a time.
+ */
+abstract class ArgumentsPattern {
+    abstract boolean matches(List<String> parameterTypes);
+
+    /**
+     * @return A regular expression that matches the same parameter types, joined by {@code ,}.
+     */
+    abstract String toRegex();
+
+    /**
+     * @param formalTypeRegexes The regular expression of each formal type in the pattern, or {@code null} for each
+     *                          {@code ..}.
+     * @param regex             The regular expression of the whole pattern, used if a formal type can't be compiled.
+     */
+    static ArgumentsPattern compile(List<String> formalTypeRegexes, String regex) {
+        NamePattern[] formalTypes = new NamePattern[formalTypeRegexes.size()];
+        for (int i = 0; i < formalTypes.length; i++) {
+            String formalTypeRegex = formalTypeRegexes.get(i);
+            if (formalTypeRegex != null) {
+                formalTypes[i] = NamePattern.compile(formalTypeRegex);
+                if (formalTypes[i] instanceof NamePattern.RegexNamePattern) {
+                    return new RegexArgumentsPattern(Pattern.compile(regex));
+                }
+            }
+        }
+        return new FormalTypesPattern(formalTypes);
+    }
+
+    private static class FormalTypesPattern extends ArgumentsPattern {
+        /**
+         * The pattern of each formal type, or {@code null} where the pattern has a {@code ..}, which matches any
+         * number of parameters.
+         */
+        private final NamePattern[] formalTypes;
+
+        private final boolean hasDotDot;
+
+        FormalTypesPattern(NamePattern[] formalTypes) {
+            this.formalTypes = formalTypes;
+            this.hasDotDot = Arrays.asList(formalTypes).contains(null);
+        }
+
+        @Override
+        boolean matches(List<String> parameterTypes) {
+            if (!hasDotDot && parameterTypes.size() != formalTypes.length) {
+                return false;
+            }
+            return matches(parameterTypes, 0, 0);
+        }
+
+        private boolean matches(List<String> parameterTypes, int formal, int param) {
+            if (formal == formalTypes.length) {
+                return param == parameterTypes.size();
+            }
+            NamePattern formalType = formalTypes[formal];
+            if (formalType == null) {
+                for (int i = param; i <= parameterTypes.size(); i++) {
+                    if (matches(parameterTypes, formal + 1, i)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return param < parameterTypes.size() &&
+                    formalType.matches(parameterTypes.get(param)) &&
+                    matches(parameterTypes, formal + 1, param + 1);
+        }
+
+        @Override
+        String toRegex() {
+            if (formalTypes.length == 1 && formalTypes[0] == null) {
+                return "([^,]+(,[^,]+)*)?";
+            }
+
+            StringBuilder regex = new StringBuilder();
+            boolean afterParameter = false;
+            for (NamePattern formalType : formalTypes) {
+                if (formalType == null) {
+                    regex.append(afterParameter ? "(,[^,]+)*" : "([^,]+,)*");
+                } else {
+                    if (afterParameter) {
+                        regex.append(',');
+                    }
+                    if (formalType.matches("")) {
+                        // a parameter type is never empty, so neither is the one a formal type matches
+                        regex.append("(?=[^,])");
+                    }
+                    regex.append(formalType.toRegex());
+                    afterParameter = true;
+                }
+            }
+            return regex.toString();
+        }
+    }
+
+    private static class RegexArgumentsPattern extends ArgumentsPattern {
+        private final Pattern pattern;
+
+        RegexArgumentsPattern(Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        @Override
+        boolean matches(List<String> parameterTypes) {
+            return pattern.matcher(String.join(",", parameterTypes)).matches();
+        }
+
+        @Override
+        String toRegex() {
+            return pattern.pattern();
+        }
+    }
+}
+
 class TypeVisitor extends RefactorMethodSignatureParserBaseVisitor<String> {
     @Override
     public String visitClassNameOrInterface(RefactorMethodSignatureParser.ClassNameOrInterfaceContext ctx) {
@@ -207,6 +633,18 @@ class FormalParameterVisitor extends RefactorMethodSignatureParserBaseVisitor<St
         return super.visitFormalTypePattern(ctx);
     }
 
+    /**
+     * @return The regular expression of each formal type, or {@code null} for each {@code ..}, once the formal
+     * parameters pattern has been visited.
+     */
+    List<String> getFormalTypeRegexes() {
+        List<String> formalTypeRegexes = new ArrayList<>(arguments.size());
+        for (Argument argument : arguments) {
+            formalTypeRegexes.add(argument == Argument.DOT_DOT ? null : argument.getRegex().replace("...", "\\[\\]"));
+        }
+        return formalTypeRegexes;
+    }
+
     @Override
     public String visitFormalParametersPattern(RefactorMethodSignatureParser.FormalParametersPatternContext ctx) {
         super.visitFormalParametersPattern(ctx);
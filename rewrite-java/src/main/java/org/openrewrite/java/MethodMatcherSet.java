@@ -0,0 +1,220 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java;
+
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaType;
+import org.openrewrite.java.tree.TypeUtils;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Many method signatures, matched against an invocation at once. The signatures are indexed by method name and then
+ * by declaring type, so that only the few signatures that could match an invocation are tested against it, however
+ * many signatures there are. Signatures with wildcards in the method name or declaring type are tested against every
+ * invocation, so the more of those there are, the less the index helps.
+ */
+public class MethodMatcherSet {
+    private final List<String> signatures = new ArrayList<>();
+    private final Map<String, ByTargetType> byMethodName = new HashMap<>();
+    private final ByTargetType anyMethodName = new ByTargetType(false);
+
+    public MethodMatcherSet(Iterable<String> signatures) {
+        for (String signature : signatures) {
+            add(signature);
+        }
+    }
+
+    /**
+     * @param signature A method signature, as accepted by {@link MethodMatcher}.
+     * @return This set.
+     */
+    public MethodMatcherSet add(String signature) {
+        MethodMatcher matcher = new MethodMatcher(signature);
+        Candidate candidate = new Candidate(signatures.size(), matcher);
+        signatures.add(signature);
+
+        String methodName = matcher.getExactMethodName();
+        (methodName == null ? anyMethodName : byMethodName.computeIfAbsent(methodName, n -> new ByTargetType(true)))
+                .add(candidate);
+        return this;
+    }
+
+    public boolean matches(J.MethodInvocation method) {
+        return !match(method, true).isEmpty();
+    }
+
+    /**
+     * @param method A method invocation.
+     * @return The signatures that match the invocation, in the order they were added to the set.
+     */
+    public List<String> matching(J.MethodInvocation method) {
+        BitSet matched = match(method, false);
+        if (matched.isEmpty()) {
+            return emptyList();
+        }
+        List<String> matching = new ArrayList<>(matched.cardinality());
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            matching.add(signatures.get(i));
+        }
+        return matching;
+    }
+
+    private BitSet match(J.MethodInvocation method, boolean first) {
+        BitSet matched = new BitSet();
+        JavaType.Method type = method.getType();
+        if (type == null || type.getDeclaringType() == null || type.getResolvedSignature() == null) {
+            return matched;
+        }
+
+        Match match = new Match(method.getSimpleName(), type, matched, first);
+        ByTargetType byTargetType = byMethodName.get(match.methodName);
+        if (byTargetType != null) {
+            byTargetType.match(match);
+        }
+        if (!(first && !matched.isEmpty())) {
+            anyMethodName.match(match);
+        }
+        return matched;
+    }
+
+    /**
+     * The state of matching one invocation, which computes the parameter types of the invocation only once it has
+     * found a signature whose name and declaring type match.
+     */
+    private static class Match {
+        private final String methodName;
+        private final JavaType.Method type;
+        private final BitSet matched;
+        private final boolean first;
+
+        @Nullable
+        private List<String> parameterTypes;
+
+        private Match(String methodName, JavaType.Method type, BitSet matched, boolean first) {
+            this.methodName = methodName;
+            this.type = type;
+            this.matched = matched;
+            this.first = first;
+        }
+
+        /**
+         * @return Whether to stop looking for more matches.
+         */
+        boolean test(Candidate candidate) {
+            if (matched.get(candidate.index)) {
+                return first;
+            }
+            if (parameterTypes == null) {
+                //noinspection ConstantConditions
+                parameterTypes = MethodMatcher.parameterTypes(type.getResolvedSignature().getParamTypes());
+            }
+            if (candidate.matcher.matchesArguments(parameterTypes)) {
+                matched.set(candidate.index);
+                return first;
+            }
+            return false;
+        }
+    }
+
+    private static class ByTargetType {
+        /**
+         * Whether every signature in this index has the method name it was indexed by, or else has to be matched
+         * against the method name of each invocation.
+         */
+        private final boolean exactMethodName;
+
+        private final Map<String, List<Candidate>> byTargetType = new HashMap<>();
+        private final List<Candidate> anyTargetType = new ArrayList<>();
+
+        private ByTargetType(boolean exactMethodName) {
+            this.exactMethodName = exactMethodName;
+        }
+
+        void add(Candidate candidate) {
+            String targetType = candidate.matcher.getExactTargetType();
+            if (targetType == null) {
+                anyTargetType.add(candidate);
+            } else {
+                byTargetType.computeIfAbsent(targetType, t -> new ArrayList<>()).add(candidate);
+            }
+        }
+
+        void match(Match match) {
+            match(match, exactMethodName ?
+                    candidate -> true :
+                    candidate -> candidate.matcher.matchesMethodName(match.methodName));
+        }
+
+        private void match(Match match, Predicate<Candidate> matchesMethodName) {
+            if (!byTargetType.isEmpty()) {
+                // walk the declaring type and its supertypes the way MethodMatcher#matchesTargetType does
+                JavaType.FullyQualified type = match.type.getDeclaringType();
+                while (type != null) {
+                    if (test(match, byTargetType.get(type.getFullyQualifiedName()), matchesMethodName)) {
+                        return;
+                    }
+                    if (type == JavaType.Class.OBJECT) {
+                        break;
+                    }
+                    JavaType.Class asClass = TypeUtils.asClass(type);
+                    if (asClass == null) {
+                        for (List<Candidate> candidates : byTargetType.values()) {
+                            if (test(match, candidates, matchesMethodName)) {
+                                return;
+                            }
+                        }
+                        break;
+                    }
+                    type = asClass.getSupertype() == null ? JavaType.Class.OBJECT : asClass.getSupertype();
+                }
+            }
+
+            for (Candidate candidate : anyTargetType) {
+                if (matchesMethodName.test(candidate) &&
+                        candidate.matcher.matchesTargetType(match.type.getDeclaringType()) &&
+                        match.test(candidate)) {
+                    return;
+                }
+            }
+        }
+
+        private boolean test(Match match, @Nullable List<Candidate> candidates, Predicate<Candidate> matchesMethodName) {
+            if (candidates != null) {
+                for (Candidate candidate : candidates) {
+                    if (matchesMethodName.test(candidate) && match.test(candidate)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class Candidate {
+        private final int index;
+        private final MethodMatcher matcher;
+
+        private Candidate(int index, MethodMatcher matcher) {
+            this.index = index;
+            this.matcher = matcher;
+        }
+    }
+}
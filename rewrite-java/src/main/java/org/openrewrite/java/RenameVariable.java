@@ -18,6 +18,7 @@ package org.openrewrite.java;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Tags;
 import org.openrewrite.Cursor;
+import org.openrewrite.java.search.NameScopes;
 import org.openrewrite.java.tree.J;
 
 public class RenameVariable extends JavaIsoRefactorVisitor {
@@ -26,6 +27,7 @@ public class RenameVariable extends JavaIsoRefactorVisitor {
 
     private Cursor scopeCursor;
     private String scopeVariableName;
+    private NameScopes nameScopes;
 
     public RenameVariable(J.VariableDecls.NamedVar scope, String toName) {
         this.scope = scope;
@@ -42,6 +44,7 @@ public class RenameVariable extends JavaIsoRefactorVisitor {
     public J.CompilationUnit visitCompilationUnit(J.CompilationUnit cu) {
         scopeCursor = new RetrieveCursor(scope).visit(cu);
         scopeVariableName = ((J.VariableDecls.NamedVar) scopeCursor.getTree()).getSimpleName();
+        nameScopes = NameScopes.of(cu);
 
         return super.visitCompilationUnit(cu);
     }
@@ -49,7 +52,7 @@ public class RenameVariable extends JavaIsoRefactorVisitor {
     @Override
     public J.Ident visitIdentifier(J.Ident ident) {
         if (ident.getSimpleName().equals(scopeVariableName) &&
-                isInSameNameScope(scopeCursor, getCursor()) &&
+                nameScopes.isInSameNameScope(scopeCursor.getTree(), ident) &&
                 !(getCursor().getParentOrThrow().getTree() instanceof J.FieldAccess)) {
             return ident.withName(toName);
         }
@@ -54,6 +54,11 @@ public class ReorderMethodArguments extends JavaIsoRefactorVisitor {
                 .and(required("order", order));
     }
 
+    @Override
+    public J.CompilationUnit visitCompilationUnit(J.CompilationUnit cu) {
+        return methodMatcher.isInvokedIn(cu) ? super.visitCompilationUnit(cu) : cu;
+    }
+
     @Override
     public J.MethodInvocation visitMethodInvocation(J.MethodInvocation method) {
         if(methodMatcher.matches(method)) {
@@ -25,6 +25,11 @@ public class UseStaticImport extends JavaIsoRefactorVisitor {
         this.methodMatcher = new MethodMatcher(method);
     }
 
+    @Override
+    public J.CompilationUnit visitCompilationUnit(J.CompilationUnit cu) {
+        return methodMatcher.isInvokedIn(cu) ? super.visitCompilationUnit(cu) : cu;
+    }
+
     @Override
     public J.MethodInvocation visitMethodInvocation(J.MethodInvocation method) {
         if (methodMatcher.matches(method) && method.getSelect() != null) {
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A process-wide cache of what signature strings compile to, holding the most recently used signatures up to a
+ * maximum, so that visitors can compile their signatures in their constructors without parsing them each time.
+ * The compiled values must be immutable, since they are shared by every caller with the same signature.
+ *
+ * @param <V> The type that signatures compile to.
+ */
+public class SignatureCache<V> {
+    private final Map<String, V> compiled;
+
+    public SignatureCache(int maximumSize) {
+        this.compiled = new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /**
+     * @param signature A signature.
+     * @param compile   Compiles the signature if it isn't cached. Signatures are compiled outside of the cache's lock,
+     *                  so the same signature may occasionally be compiled twice.
+     * @return The compiled signature.
+     */
+    public V get(String signature, Function<String, V> compile) {
+        synchronized (compiled) {
+            V value = compiled.get(signature);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        V value = compile.apply(signature);
+        synchronized (compiled) {
+            V raced = compiled.putIfAbsent(signature, value);
+            return raced == null ? value : raced;
+        }
+    }
+
+    public int size() {
+        synchronized (compiled) {
+            return compiled.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (compiled) {
+            compiled.clear();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java.internal;
+
+import org.openrewrite.internal.lang.Nullable;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Summaries computed from trees, kept on the side rather than in the trees so that copying a tree with one of its
+ * {@code withX} methods never carries over the summaries of the tree it was copied from. Trees are held by identity,
+ * since trees that are equal by id may still differ in content, and weakly, so that a tree's summaries are dropped
+ * along with the tree. A summary must therefore not refer to the tree it summarizes.
+ *
+ * @param <T> The type of tree summarized.
+ */
+public class TreeSummaries<T> {
+    private final Map<TreeKey<T>, Map<Class<?>, Object>> summaries = new ConcurrentHashMap<>();
+    private final ReferenceQueue<T> collected = new ReferenceQueue<>();
+
+    /**
+     * @param tree        A tree.
+     * @param summaryType The type of summary.
+     * @param summarize   Summarizes the tree if it hasn't been summarized with this type of summary before. Trees are
+     *                    summarized outside of any lock, so the same tree may occasionally be summarized twice.
+     * @param <S>         The type of summary.
+     * @return The summary.
+     */
+    public <S> S get(T tree, Class<S> summaryType, Function<T, S> summarize) {
+        expungeCollected();
+
+        Map<Class<?>, Object> treeSummaries = summaries.get(new TreeKey<>(tree, null));
+        if (treeSummaries == null) {
+            treeSummaries = summaries.computeIfAbsent(new TreeKey<>(tree, collected),
+                    k -> new ConcurrentHashMap<>(4));
+        }
+
+        Object summary = treeSummaries.get(summaryType);
+        if (summary == null) {
+            summary = summarize.apply(tree);
+            Object raced = treeSummaries.putIfAbsent(summaryType, summary);
+            if (raced != null) {
+                summary = raced;
+            }
+        }
+        return summaryType.cast(summary);
+    }
+
+    public int size() {
+        expungeCollected();
+        return summaries.size();
+    }
+
+    private void expungeCollected() {
+        Object key;
+        while ((key = collected.poll()) != null) {
+            summaries.remove(key);
+        }
+    }
+
+    private static class TreeKey<T> extends WeakReference<T> {
+        private final int hash;
+
+        private TreeKey(T tree, @Nullable ReferenceQueue<T> queue) {
+            super(tree, queue);
+            this.hash = System.identityHashCode(tree);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TreeKey)) {
+                return false;
+            }
+            Object tree = get();
+            return tree != null && tree == ((TreeKey<?>) o).get();
+        }
+    }
+}
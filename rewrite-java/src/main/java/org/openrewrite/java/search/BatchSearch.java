@@ -0,0 +1,230 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java.search;
+
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.MethodMatcher;
+import org.openrewrite.java.MethodMatcherSet;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.NameTree;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Many searches, run together over each compilation unit. Each query finds the same trees as the search visitor it is
+ * named after would, but is answered from the {@link ReferenceSummary} of the compilation unit, so a batch of N
+ * queries costs at most one traversal of each compilation unit instead of N, and method queries are matched against
+ * each invocation all at once. Compilation units are searched in parallel, and those that don't mention the name of
+ * any query (see {@link SourceTokens}) are not summarized at all.
+ * <pre>
+ * BatchSearch batch = new BatchSearch();
+ * BatchSearch.Query&lt;Set&lt;NameTree&gt;&gt; lists = batch.findType("java.util.List");
+ * BatchSearch.Query&lt;List&lt;J.MethodInvocation&gt;&gt; emptyLists = batch.findMethods("java.util.Collections emptyList()");
+ * BatchSearch.Results results = batch.run(cus);
+ * results.get(lists).forEach((cu, names) -&gt; ...);
+ * </pre>
+ */
+public class BatchSearch {
+    private final List<Query<?>> queries = new ArrayList<>();
+
+    private final Map<String, List<Query<Set<NameTree>>>> typeQueries = new HashMap<>();
+    private final List<MethodQuery> methodQueries = new ArrayList<>();
+    private final List<AnnotationQuery> annotationQueries = new ArrayList<>();
+
+    /**
+     * @param clazz The fully qualified name of a type.
+     * @return A query for the results of {@link FindType}.
+     */
+    public Query<Set<NameTree>> findType(String clazz) {
+        Query<Set<NameTree>> query = new Query<>(queries.size(), clazz);
+        add(query);
+        typeQueries.computeIfAbsent(clazz, c -> new ArrayList<>()).add(query);
+        return query;
+    }
+
+    /**
+     * @param signature A method signature, as accepted by {@link MethodMatcher}.
+     * @return A query for the results of {@link FindMethods}.
+     */
+    public Query<List<J.MethodInvocation>> findMethods(String signature) {
+        return add(new MethodQuery(queries.size(), signature));
+    }
+
+    /**
+     * @param signature An annotation signature, as accepted by {@link FindAnnotations}.
+     * @return A query for the results of {@link FindAnnotations}.
+     */
+    public Query<List<J.Annotation>> findAnnotations(String signature) {
+        return add(new AnnotationQuery(queries.size(), signature));
+    }
+
+    private <Q extends Query<?>> Q add(Q query) {
+        queries.add(query);
+        if (query instanceof MethodQuery) {
+            methodQueries.add((MethodQuery) query);
+        } else if (query instanceof AnnotationQuery) {
+            annotationQueries.add((AnnotationQuery) query);
+        }
+        return query;
+    }
+
+    /**
+     * @param cus The compilation units to search, which are searched in parallel.
+     * @return The results of every query, in the order of the compilation units.
+     */
+    public Results run(List<J.CompilationUnit> cus) {
+        MethodMatcherSet methodMatchers = new MethodMatcherSet(emptyList());
+        Map<String, List<MethodQuery>> methodQueriesBySignature = new HashMap<>();
+        for (MethodQuery query : methodQueries) {
+            // a signature asked for by several queries is matched once, and its matches are found for each query
+            methodQueriesBySignature.computeIfAbsent(query.signature, s -> {
+                methodMatchers.add(s);
+                return new ArrayList<>();
+            }).add(query);
+        }
+
+        Object[][] found = new Object[cus.size()][];
+        IntStream.range(0, cus.size()).parallel().forEach(i ->
+                found[i] = search(cus.get(i), methodMatchers, methodQueriesBySignature));
+
+        return new Results(cus, found);
+    }
+
+    /**
+     * @return The results of each query in the compilation unit, or {@code null} if it can't have any.
+     */
+    @Nullable
+    private Object[] search(J.CompilationUnit cu, MethodMatcherSet methodMatchers,
+                            Map<String, List<MethodQuery>> methodQueriesBySignature) {
+        if (!mayMatch(cu)) {
+            return null;
+        }
+
+        ReferenceSummary summary = ReferenceSummary.of(cu);
+        Object[] found = new Object[queries.size()];
+
+        typeQueries.forEach((clazz, typeQueriesOfClass) -> {
+            Set<NameTree> names = summary.findType(clazz);
+            if (!names.isEmpty()) {
+                typeQueriesOfClass.forEach(query -> found[query.index] = names);
+            }
+        });
+
+        if (!methodQueriesBySignature.isEmpty()) {
+            summary.findMethodCalls(methodMatchers).forEach((signature, methods) ->
+                    methodQueriesBySignature.get(signature).forEach(query -> found[query.index] = methods));
+        }
+
+        for (AnnotationQuery query : annotationQueries) {
+            List<J.Annotation> annotations = summary.findAnnotations(query.findAnnotations);
+            if (!annotations.isEmpty()) {
+                found[query.index] = annotations;
+            }
+        }
+
+        return found;
+    }
+
+    private boolean mayMatch(J.CompilationUnit cu) {
+        SourceTokens tokens = SourceTokens.of(cu);
+        for (String clazz : typeQueries.keySet()) {
+            if (tokens.mayReferToType(clazz)) {
+                return true;
+            }
+        }
+        for (MethodQuery query : methodQueries) {
+            String methodName = query.matcher.getExactMethodName();
+            if (methodName == null || tokens.mayContain(methodName)) {
+                return true;
+            }
+        }
+        for (AnnotationQuery query : annotationQueries) {
+            if (query.findAnnotations.mayMatch(cu)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A handle on the results of one query in a batch.
+     *
+     * @param <T> The type of results that the query finds in a compilation unit.
+     */
+    public static class Query<T> {
+        private final int index;
+        private final String description;
+
+        private Query(int index, String description) {
+            this.index = index;
+            this.description = description;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    private static class MethodQuery extends Query<List<J.MethodInvocation>> {
+        private final String signature;
+        private final MethodMatcher matcher;
+
+        private MethodQuery(int index, String signature) {
+            super(index, signature);
+            this.signature = signature;
+            this.matcher = new MethodMatcher(signature);
+        }
+    }
+
+    private static class AnnotationQuery extends Query<List<J.Annotation>> {
+        private final FindAnnotations findAnnotations;
+
+        private AnnotationQuery(int index, String signature) {
+            super(index, signature);
+            this.findAnnotations = new FindAnnotations(signature);
+        }
+    }
+
+    public static class Results {
+        private final List<J.CompilationUnit> cus;
+        private final Object[][] found;
+
+        private Results(List<J.CompilationUnit> cus, Object[][] found) {
+            this.cus = cus;
+            this.found = found;
+        }
+
+        /**
+         * @param query A query of the batch that produced these results.
+         * @param <T>   The type of results that the query finds in a compilation unit.
+         * @return The results of the query in each compilation unit it found anything in.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> Map<J.CompilationUnit, T> get(Query<T> query) {
+            Map<J.CompilationUnit, T> results = new LinkedHashMap<>();
+            for (int i = 0; i < found.length; i++) {
+                if (found[i] != null && found[i][query.index] != null) {
+                    results.put(cus.get(i), (T) found[i][query.index]);
+                }
+            }
+            return results;
+        }
+    }
+}
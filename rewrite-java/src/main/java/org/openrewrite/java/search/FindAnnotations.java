@@ -19,7 +19,9 @@ import lombok.Data;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.openrewrite.Tree;
+import org.openrewrite.internal.lang.Nullable;
 import org.openrewrite.java.AbstractJavaSourceVisitor;
+import org.openrewrite.java.internal.SignatureCache;
 import org.openrewrite.java.internal.grammar.AnnotationSignatureParser;
 import org.openrewrite.java.internal.grammar.AspectJLexer;
 import org.openrewrite.java.tree.J;
@@ -36,7 +38,7 @@ public class FindAnnotations extends AbstractJavaSourceVisitor<List<J.Annotation
     private final AnnotationMatcher matcher;
 
     public FindAnnotations(String signature) {
-        this.matcher = new AnnotationMatcher(signature);
+        this.matcher = AnnotationMatcher.compile(signature);
     }
 
     @Override
@@ -44,17 +46,58 @@ public class FindAnnotations extends AbstractJavaSourceVisitor<List<J.Annotation
         return emptyList();
     }
 
+    /**
+     * @param cu A compilation unit.
+     * @return {@code false} if the compilation unit certainly has no matching annotations, otherwise {@code true}.
+     */
+    boolean mayMatch(J.CompilationUnit cu) {
+        return SourceTokens.of(cu).mayReferToType(matcher.annotationName);
+    }
+
     @Override
     public List<J.Annotation> visitAnnotation(J.Annotation annotation) {
-        return matcher.matches(annotation) ? singletonList(annotation) : emptyList();
+        return matches(annotation) ? singletonList(annotation) : emptyList();
+    }
+
+    String getAnnotationName() {
+        return matcher.annotationName;
     }
 
+    boolean matches(J.Annotation annotation) {
+        return matcher.matches(annotation);
+    }
+
+    /**
+     * An annotation signature reduced to the texts it compares annotations with, so that it can be shared by every
+     * matcher of the same signature.
+     */
     private static class AnnotationMatcher {
-        private final AnnotationSignatureParser.AnnotationContext match;
+        private static final SignatureCache<AnnotationMatcher> COMPILED = new SignatureCache<>(1024);
+
+        private final String annotationName;
+
+        @Nullable
+        private final String elementValue;
 
-        public AnnotationMatcher(String signature) {
-            this.match = new AnnotationSignatureParser(new CommonTokenStream(new AspectJLexer(CharStreams.fromString(signature))))
-                    .annotation();
+        @Nullable
+        private final List<AnnotationParameter> namedParameters;
+
+        static AnnotationMatcher compile(String signature) {
+            return COMPILED.get(signature, AnnotationMatcher::new);
+        }
+
+        private AnnotationMatcher(String signature) {
+            AnnotationSignatureParser.AnnotationContext match = new AnnotationSignatureParser(
+                    new CommonTokenStream(new AspectJLexer(CharStreams.fromString(signature)))).annotation();
+
+            this.annotationName = match.annotationName().getText();
+            this.elementValue = match.elementValue() == null ? null : match.elementValue().getText();
+
+            AnnotationSignatureParser.ElementValuePairsContext pairs = match.elementValuePairs();
+            this.namedParameters = pairs == null || pairs.elementValuePair() == null ? null :
+                    pairs.elementValuePair().stream()
+                            .map(pair -> new AnnotationParameter(pair.Identifier().getText(), pair.elementValue().getText()))
+                            .collect(toList());
         }
 
         public boolean matches(J.Annotation annotation) {
@@ -65,19 +108,15 @@ public class FindAnnotations extends AbstractJavaSourceVisitor<List<J.Annotation
 
         private boolean matchesAnnotationName(J.Annotation annotation) {
             JavaType.Class typeAsClass = TypeUtils.asClass(annotation.getType());
-            return match.annotationName().getText().equals(typeAsClass == null ? null : typeAsClass.getFullyQualifiedName());
+            return annotationName.equals(typeAsClass == null ? null : typeAsClass.getFullyQualifiedName());
         }
 
         private boolean matchesNamedParameters(J.Annotation annotation) {
-            AnnotationSignatureParser.ElementValuePairsContext pairs = match.elementValuePairs();
-            if(pairs == null || pairs.elementValuePair() == null) {
+            List<AnnotationParameter> matchArgs = namedParameters;
+            if(matchArgs == null) {
                 return true;
             }
 
-            List<AnnotationParameter> matchArgs = pairs.elementValuePair().stream()
-                    .map(pair -> new AnnotationParameter(pair.Identifier().getText(), pair.elementValue().getText()))
-                    .collect(toList());
-
             return annotation.getArgs() != null && annotation.getArgs().getArgs().stream()
                     .map(arg -> {
                         J.Assign assign = (J.Assign) arg;
@@ -87,7 +126,8 @@ public class FindAnnotations extends AbstractJavaSourceVisitor<List<J.Annotation
         }
 
         private boolean matchesSingleParameter(J.Annotation annotation) {
-            if(match.elementValue() == null) {
+            String elementValue = this.elementValue;
+            if(elementValue == null) {
                 return true;
             }
 
@@ -95,10 +135,10 @@ public class FindAnnotations extends AbstractJavaSourceVisitor<List<J.Annotation
                     .findAny()
                     .map(arg -> {
                         if (arg instanceof J.Assign) {
-                            return ((J.Assign) arg).getAssignment().printTrimmed().equals(match.elementValue().getText());
+                            return ((J.Assign) arg).getAssignment().printTrimmed().equals(elementValue);
                         }
                         if (arg instanceof J.Literal) {
-                            return ((J.Literal) arg).getValueSource().equals(match.elementValue().getText());
+                            return ((J.Literal) arg).getValueSource().equals(elementValue);
                         }
                         return false;
                     })
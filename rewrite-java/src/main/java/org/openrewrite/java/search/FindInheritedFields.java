@@ -18,17 +18,15 @@ package org.openrewrite.java.search;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Tags;
 import org.openrewrite.Tree;
-import org.openrewrite.internal.lang.Nullable;
 import org.openrewrite.java.AbstractJavaSourceVisitor;
-import org.openrewrite.java.tree.Flag;
 import org.openrewrite.java.tree.J;
 import org.openrewrite.java.tree.JavaType;
 import org.openrewrite.java.tree.TypeUtils;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
 
 public class FindInheritedFields extends AbstractJavaSourceVisitor<List<JavaType.Var>> {
     private final String fullyQualifiedClassName;
@@ -47,21 +45,16 @@ public class FindInheritedFields extends AbstractJavaSourceVisitor<List<JavaType
         return emptyList();
     }
 
-    private List<JavaType.Var> superFields(@Nullable JavaType.Class type) {
-        if(type == null || type.getSupertype() == null) {
-            return emptyList();
-        }
-        List<JavaType.Var> types = new ArrayList<>();
-        type.getMembers().stream()
-                .filter(m -> !m.hasFlags(Flag.Private) && TypeUtils.hasElementType(m.getType(), fullyQualifiedClassName))
-                .forEach(types::add);
-        types.addAll(superFields(type.getSupertype()));
-        return types;
-    }
-
     @Override
     public List<JavaType.Var> visitClassDecl(J.ClassDecl classDecl) {
         JavaType.Class asClass = TypeUtils.asClass(classDecl.getType());
-        return superFields(asClass == null ? null : asClass.getSupertype());
+        if (asClass == null) {
+            return emptyList();
+        }
+
+        // the members of the root of the hierarchy, which has no supertype of its own, are not considered inherited
+        return asClass.getVisibleSupertypeMembersExcludingRoot().stream()
+                .filter(m -> TypeUtils.hasElementType(m.getType(), fullyQualifiedClassName))
+                .collect(toList());
     }
 }
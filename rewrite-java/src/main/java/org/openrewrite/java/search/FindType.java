@@ -29,6 +29,8 @@ import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.Set;
 
+import static java.util.Collections.emptySet;
+
 /**
  * Find places where a type is mentioned explicitly, excluding imports.
  */
@@ -47,11 +49,18 @@ public class FindType extends AbstractJavaSourceVisitor<Set<NameTree>> {
 
     @Override
     public Set<NameTree> defaultTo(Tree t) {
-        return Collections.newSetFromMap(new IdentityHashMap<>());
+        return emptySet();
     }
 
     @Override
     public Set<NameTree> reduce(Set<NameTree> r1, Set<NameTree> r2) {
+        if (r2.isEmpty()) {
+            return r1;
+        } else if (r1.isEmpty()) {
+            return r2;
+        }
+
+        // a non-empty result is a set of its own that no other tree's result refers to, so it can accumulate
         r1.addAll(r2);
         return r1;
     }
@@ -61,7 +70,7 @@ public class FindType extends AbstractJavaSourceVisitor<Set<NameTree>> {
         JavaType.Class asClass = TypeUtils.asClass(name.getType());
         if (asClass != null && asClass.getFullyQualifiedName().equals(clazz) &&
                 getCursor().firstEnclosing(J.Import.class) == null) {
-            Set<NameTree> names = defaultTo(name);
+            Set<NameTree> names = Collections.newSetFromMap(new IdentityHashMap<>());
             names.add(name);
             return names;
         }
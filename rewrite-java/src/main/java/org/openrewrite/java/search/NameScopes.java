@@ -0,0 +1,223 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java.search;
+
+import org.openrewrite.Tree;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.AbstractJavaSourceVisitor;
+import org.openrewrite.java.JavaSourceVisitor;
+import org.openrewrite.java.tree.J;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * The name scope of every identifier, variable and variable declaration in a compilation unit, resolved in a single
+ * pass the first time it is asked for and kept for as long as the compilation unit is. Answers the same question as
+ * {@link JavaSourceVisitor#isInSameNameScope(org.openrewrite.Cursor, org.openrewrite.Cursor)} by following a chain of
+ * enclosing scopes instead of both cursor paths, so that visitors that ask it for each identifier stay linear.
+ */
+public class NameScopes {
+    private static final Entry NO_SCOPE = new Entry(null, false);
+
+    private final Map<UUID, Entry> entries = new HashMap<>();
+
+    private NameScopes(J.CompilationUnit cu) {
+        new Resolver().visit(cu);
+    }
+
+    /**
+     * @param cu A compilation unit.
+     * @return The name scopes of the compilation unit, computed once for each instance of a compilation unit.
+     */
+    public static NameScopes of(J.CompilationUnit cu) {
+        return cu.summarize(NameScopes.class, NameScopes::new);
+    }
+
+    /**
+     * @param t A tree.
+     * @return Whether the names declared in the tree are only visible inside it.
+     */
+    public static boolean isNameScope(Tree t) {
+        return t instanceof J.Block ||
+                t instanceof J.MethodDecl ||
+                t instanceof J.Try ||
+                t instanceof J.ForLoop ||
+                t instanceof J.ForEachLoop;
+    }
+
+    /**
+     * @param t A tree.
+     * @return Whether the names declared outside of the tree are not visible inside it, because it is a class
+     * declaration that doesn't have access to the instance members of its enclosing class.
+     */
+    public static boolean isNameScopeBoundary(Tree t) {
+        return t instanceof J.ClassDecl &&
+                !(((J.ClassDecl) t).getKind() instanceof J.ClassDecl.Kind.Class &&
+                        !((J.ClassDecl) t).hasModifier("static"));
+    }
+
+    /**
+     * @param higher An identifier, variable or variable declaration of the compilation unit.
+     * @param lower  An identifier, variable or variable declaration of the compilation unit.
+     * @return Whether {@code lower} is in the name scope of {@code higher}, or {@code false} if either is not part of
+     * the compilation unit.
+     */
+    public boolean isInSameNameScope(Tree higher, Tree lower) {
+        Entry higherEntry = entries.get(higher.getId());
+        Entry lowerEntry = entries.get(lower.getId());
+        if (higherEntry == null || lowerEntry == null || higherEntry.scope == null || lowerEntry.beyondBoundary) {
+            return false;
+        }
+
+        for (Scope scope = lowerEntry.scope; scope != null; scope = scope.visibleEnclosing) {
+            if (scope == higherEntry.scope) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Scope {
+        /**
+         * The scope this one is nested in, or {@code null} if a name scope boundary lies between them.
+         */
+        @Nullable
+        private final Scope visibleEnclosing;
+
+        private final Entry inside = new Entry(this, false);
+        private final Entry beyondBoundary = new Entry(this, true);
+
+        private Scope(@Nullable Scope visibleEnclosing) {
+            this.visibleEnclosing = visibleEnclosing;
+        }
+    }
+
+    private static class Entry {
+        @Nullable
+        private final Scope scope;
+
+        /**
+         * Whether a name scope boundary lies between the tree and its scope.
+         */
+        private final boolean beyondBoundary;
+
+        private Entry(@Nullable Scope scope, boolean beyondBoundary) {
+            this.scope = scope;
+            this.beyondBoundary = beyondBoundary;
+        }
+    }
+
+    private class Resolver extends AbstractJavaSourceVisitor<Object> {
+        @Nullable
+        private Scope scope;
+
+        /**
+         * Whether a name scope boundary has been entered since {@link #scope} was.
+         */
+        private boolean beyondBoundary;
+
+        @Nullable
+        @Override
+        public Object defaultTo(@Nullable Tree t) {
+            return null;
+        }
+
+        @Nullable
+        @Override
+        public Object reduce(@Nullable Object r1, @Nullable Object r2) {
+            return null;
+        }
+
+        @Override
+        public Object visitBlock(J.Block<J> block) {
+            return inScope(block, () -> super.visitBlock(block));
+        }
+
+        @Override
+        public Object visitMethod(J.MethodDecl method) {
+            return inScope(method, () -> super.visitMethod(method));
+        }
+
+        @Override
+        public Object visitTry(J.Try tryable) {
+            return inScope(tryable, () -> super.visitTry(tryable));
+        }
+
+        @Override
+        public Object visitForLoop(J.ForLoop forLoop) {
+            return inScope(forLoop, () -> super.visitForLoop(forLoop));
+        }
+
+        @Override
+        public Object visitForEachLoop(J.ForEachLoop forEachLoop) {
+            return inScope(forEachLoop, () -> super.visitForEachLoop(forEachLoop));
+        }
+
+        @Override
+        public Object visitClassDecl(J.ClassDecl classDecl) {
+            if (!isNameScopeBoundary(classDecl)) {
+                return super.visitClassDecl(classDecl);
+            }
+
+            boolean enclosingBeyondBoundary = beyondBoundary;
+            beyondBoundary = true;
+            try {
+                return super.visitClassDecl(classDecl);
+            } finally {
+                beyondBoundary = enclosingBeyondBoundary;
+            }
+        }
+
+        @Override
+        public Object visitIdentifier(J.Ident ident) {
+            record(ident);
+            return super.visitIdentifier(ident);
+        }
+
+        @Override
+        public Object visitMultiVariable(J.VariableDecls multiVariable) {
+            record(multiVariable);
+            return super.visitMultiVariable(multiVariable);
+        }
+
+        @Override
+        public Object visitVariable(J.VariableDecls.NamedVar variable) {
+            record(variable);
+            return super.visitVariable(variable);
+        }
+
+        private void record(J tree) {
+            entries.put(tree.getId(), scope == null ? NO_SCOPE : beyondBoundary ? scope.beyondBoundary : scope.inside);
+        }
+
+        private Object inScope(J nameScope, Supplier<Object> visit) {
+            Scope enclosing = scope;
+            boolean enclosingBeyondBoundary = beyondBoundary;
+            scope = new Scope(beyondBoundary ? null : enclosing);
+            beyondBoundary = false;
+            entries.put(nameScope.getId(), scope.inside);
+            try {
+                return visit.get();
+            } finally {
+                scope = enclosing;
+                beyondBoundary = enclosingBeyondBoundary;
+            }
+        }
+    }
+}
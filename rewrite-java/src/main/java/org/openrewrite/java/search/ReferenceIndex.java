@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java.search;
+
+import org.openrewrite.java.MethodMatcher;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.NameTree;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * The types, methods, fields and annotations that a set of compilation units refer to, found in a single pass over
+ * each compilation unit. Searching the index gives the same results as running {@link FindType}, {@link FindMethods},
+ * {@link FindFields} and {@link FindAnnotations} on every compilation unit, but only looks at the trees that refer
+ * to the type or method being searched for.
+ * <p>
+ * The index is made of the {@link ReferenceSummary} of each compilation unit, and refers to the trees of the
+ * compilation units it was built from, so it must be rebuilt once they are refactored.
+ */
+public class ReferenceIndex {
+    private final List<J.CompilationUnit> cus = new ArrayList<>();
+    private final List<ReferenceSummary> summaries = new ArrayList<>();
+
+    public ReferenceIndex(Iterable<J.CompilationUnit> cus) {
+        for (J.CompilationUnit cu : cus) {
+            this.cus.add(cu);
+            this.summaries.add(ReferenceSummary.of(cu));
+        }
+    }
+
+    /**
+     * @param clazz The fully qualified name of a type.
+     * @return Places where each compilation unit mentions the type explicitly, excluding imports.
+     */
+    public Map<J.CompilationUnit, Set<NameTree>> findType(String clazz) {
+        return find(summary -> summary.findType(clazz));
+    }
+
+    /**
+     * @param signature A method signature, as accepted by {@link MethodMatcher}.
+     * @return The invocations of matching methods in each compilation unit, in source order. Like {@link FindMethods},
+     * this excludes invocations in the arguments of another matching invocation.
+     */
+    public Map<J.CompilationUnit, List<J.MethodInvocation>> findMethods(String signature) {
+        return find(summary -> summary.findMethodCalls(signature));
+    }
+
+    /**
+     * @param fullyQualifiedName The fully qualified name of a type.
+     * @return The variable declarations of that type, or of arrays of that type, in each compilation unit.
+     */
+    public Map<J.CompilationUnit, List<J.VariableDecls>> findFields(String fullyQualifiedName) {
+        return find(summary -> summary.findFields(fullyQualifiedName));
+    }
+
+    /**
+     * @param signature An annotation signature, as accepted by {@link FindAnnotations}.
+     * @return The matching annotations in each compilation unit.
+     */
+    public Map<J.CompilationUnit, List<J.Annotation>> findAnnotations(String signature) {
+        FindAnnotations findAnnotations = new FindAnnotations(signature);
+        return find(summary -> summary.findAnnotations(findAnnotations));
+    }
+
+    private <T extends Collection<?>> Map<J.CompilationUnit, T> find(Function<ReferenceSummary, T> search) {
+        Map<J.CompilationUnit, T> found = new LinkedHashMap<>();
+        for (int i = 0; i < cus.size(); i++) {
+            T trees = search.apply(summaries.get(i));
+            if (!trees.isEmpty()) {
+                found.put(cus.get(i), trees);
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java.search;
+
+import org.openrewrite.Tree;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.AbstractJavaSourceVisitor;
+import org.openrewrite.java.MethodMatcher;
+import org.openrewrite.java.MethodMatcherSet;
+import org.openrewrite.java.tree.*;
+
+import java.util.*;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * The imports, type names, method invocations, variable declarations and annotations of a compilation unit, collected
+ * in a single pass the first time one of them is asked for and kept for as long as the compilation unit is.
+ * {@link HasImport}, {@link HasType}, {@link FindType}, {@link FindMethods}, {@link FindFields} and
+ * {@link FindAnnotations} each traverse the whole compilation unit, whereas the summary answers the same questions for
+ * an unchanged compilation unit with a lookup. {@link ReferenceIndex} and {@link BatchSearch} answer their queries
+ * from the summaries of the compilation units they search.
+ */
+public class ReferenceSummary {
+    private final Set<String> importedTypes = new HashSet<>();
+    private final Set<String> starImportedPackages = new HashSet<>();
+    private final Map<String, Set<NameTree>> typeNames = new HashMap<>();
+
+    /**
+     * Every method invocation in the order {@link FindMethods} visits them, so that the invocations nested in the
+     * arguments of another can be skipped the way that visitor skips them.
+     */
+    private final List<Invocation> invocations = new ArrayList<>();
+    private final Map<String, List<Invocation>> invocationsByName = new HashMap<>();
+
+    /**
+     * Like {@link FindFields} and {@link FindAnnotations}, only the outermost variable declarations and annotations
+     * are recorded, by the name of their (element) type.
+     */
+    private final Map<String, List<J.VariableDecls>> variableDecls = new HashMap<>();
+    private final Map<String, List<J.Annotation>> annotations = new HashMap<>();
+
+    private ReferenceSummary(J.CompilationUnit cu) {
+        for (J.Import anImport : cu.getImports()) {
+            if ("*".equals(anImport.getQualid().getSimpleName())) {
+                starImportedPackages.add(anImport.getQualid().getTarget().printTrimmed());
+            } else {
+                importedTypes.add(anImport.getTypeName());
+            }
+        }
+        new Summarizer().visit(cu);
+    }
+
+    /**
+     * @param cu A compilation unit.
+     * @return The summary of the compilation unit, computed once for each instance of a compilation unit.
+     */
+    public static ReferenceSummary of(J.CompilationUnit cu) {
+        return cu.summarize(ReferenceSummary.class, ReferenceSummary::new);
+    }
+
+    /**
+     * @param clazz The fully qualified name of a type.
+     * @return The same as {@link HasImport}.
+     */
+    public boolean hasImport(String clazz) {
+        if (importedTypes.contains(clazz)) {
+            return true;
+        }
+        return !starImportedPackages.isEmpty() && starImportedPackages.contains(Arrays.stream(clazz.split("\\."))
+                .filter(pkgOrNam -> !pkgOrNam.isEmpty() && Character.isLowerCase(pkgOrNam.charAt(0)))
+                .collect(joining(".")));
+    }
+
+    /**
+     * @param clazz The fully qualified name of a type.
+     * @return The same as {@link HasType}.
+     */
+    public boolean hasType(String clazz) {
+        return typeNames.containsKey(clazz);
+    }
+
+    /**
+     * @param clazz The fully qualified name of a type.
+     * @return The same as {@link FindType}.
+     */
+    public Set<NameTree> findType(String clazz) {
+        Set<NameTree> names = typeNames.get(clazz);
+        return names == null ? emptySet() : Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * @param signature A method signature, as accepted by {@link MethodMatcher}.
+     * @return The same as {@link FindMethods}.
+     */
+    public List<J.MethodInvocation> findMethodCalls(String signature) {
+        return findMethodCalls(new MethodMatcher(signature));
+    }
+
+    /**
+     * @param matcher A method matcher.
+     * @return The same as {@link FindMethods}.
+     */
+    public List<J.MethodInvocation> findMethodCalls(MethodMatcher matcher) {
+        List<J.MethodInvocation> found = new ArrayList<>();
+        int skipUntil = 0;
+        for (Invocation candidate : candidates(matcher)) {
+            if (candidate.index >= skipUntil && matcher.matches(candidate.method)) {
+                found.add(candidate.method);
+                skipUntil = candidate.end;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param matcher A method matcher.
+     * @return Whether any invocation matches.
+     */
+    public boolean hasMethodCall(MethodMatcher matcher) {
+        for (Invocation candidate : candidates(matcher)) {
+            if (matcher.matches(candidate.method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Invocation> candidates(MethodMatcher matcher) {
+        String methodName = matcher.getExactMethodName();
+        return methodName == null ? invocations : invocationsByName.getOrDefault(methodName, emptyList());
+    }
+
+    /**
+     * @param matchers Many method signatures.
+     * @return For each signature that matches any invocation, the same as {@link FindMethods}, found in one pass over
+     * the invocations of the compilation unit.
+     */
+    public Map<String, List<J.MethodInvocation>> findMethodCalls(MethodMatcherSet matchers) {
+        Map<String, List<J.MethodInvocation>> found = new LinkedHashMap<>();
+        Map<String, Integer> skipUntil = new HashMap<>();
+        for (Invocation candidate : invocations) {
+            for (String signature : matchers.matching(candidate.method)) {
+                if (candidate.index >= skipUntil.getOrDefault(signature, 0)) {
+                    found.computeIfAbsent(signature, s -> new ArrayList<>()).add(candidate.method);
+                    skipUntil.put(signature, candidate.end);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param fullyQualifiedName The fully qualified name of a type.
+     * @return The same as {@link FindFields}.
+     */
+    public List<J.VariableDecls> findFields(String fullyQualifiedName) {
+        return Collections.unmodifiableList(variableDecls.getOrDefault(fullyQualifiedName, emptyList()));
+    }
+
+    /**
+     * @param signature An annotation signature, as accepted by {@link FindAnnotations}.
+     * @return The same as {@link FindAnnotations}.
+     */
+    public List<J.Annotation> findAnnotations(String signature) {
+        return findAnnotations(new FindAnnotations(signature));
+    }
+
+    List<J.Annotation> findAnnotations(FindAnnotations findAnnotations) {
+        List<J.Annotation> found = new ArrayList<>();
+        for (J.Annotation candidate : annotations.getOrDefault(findAnnotations.getAnnotationName(), emptyList())) {
+            if (findAnnotations.matches(candidate)) {
+                found.add(candidate);
+            }
+        }
+        return found;
+    }
+
+    @Nullable
+    private static String elementTypeName(@Nullable JavaType type) {
+        if (type instanceof JavaType.Array) {
+            return elementTypeName(((JavaType.Array) type).getElemType());
+        }
+        if (type instanceof JavaType.Class) {
+            return ((JavaType.Class) type).getFullyQualifiedName();
+        }
+        if (type instanceof JavaType.GenericTypeVariable) {
+            return ((JavaType.GenericTypeVariable) type).getFullyQualifiedName();
+        }
+        return null;
+    }
+
+    private static class Invocation {
+        private final J.MethodInvocation method;
+        private final int index;
+
+        /**
+         * The index of the first invocation that isn't nested in this one.
+         */
+        private int end;
+
+        private Invocation(J.MethodInvocation method, int index) {
+            this.method = method;
+            this.index = index;
+        }
+    }
+
+    private class Summarizer extends AbstractJavaSourceVisitor<Object> {
+        private int variableDeclsDepth;
+        private int annotationDepth;
+
+        @Nullable
+        @Override
+        public Object defaultTo(@Nullable Tree t) {
+            return null;
+        }
+
+        @Nullable
+        @Override
+        public Object reduce(@Nullable Object r1, @Nullable Object r2) {
+            return null;
+        }
+
+        @Nullable
+        @Override
+        public Object visitImport(J.Import impoort) {
+            // type names in imports are not references
+            return null;
+        }
+
+        @Override
+        public Object visitTypeName(NameTree name) {
+            JavaType.Class asClass = TypeUtils.asClass(name.getType());
+            if (asClass != null) {
+                typeNames.computeIfAbsent(asClass.getFullyQualifiedName(),
+                        n -> Collections.newSetFromMap(new IdentityHashMap<>())).add(name);
+            }
+            return super.visitTypeName(name);
+        }
+
+        @Override
+        public Object visitMethodInvocation(J.MethodInvocation method) {
+            Invocation invocation = new Invocation(method, invocations.size());
+            invocations.add(invocation);
+            invocationsByName.computeIfAbsent(method.getSimpleName(), n -> new ArrayList<>()).add(invocation);
+            try {
+                return super.visitMethodInvocation(method);
+            } finally {
+                invocation.end = invocations.size();
+            }
+        }
+
+        @Override
+        public Object visitMultiVariable(J.VariableDecls multiVariable) {
+            if (variableDeclsDepth == 0 && multiVariable.getTypeExpr() != null &&
+                    !(multiVariable.getTypeExpr() instanceof J.MultiCatch)) {
+                String elementType = elementTypeName(multiVariable.getTypeExpr().getType());
+                if (elementType != null) {
+                    variableDecls.computeIfAbsent(elementType, t -> new ArrayList<>()).add(multiVariable);
+                }
+            }
+            variableDeclsDepth++;
+            try {
+                return super.visitMultiVariable(multiVariable);
+            } finally {
+                variableDeclsDepth--;
+            }
+        }
+
+        @Override
+        public Object visitAnnotation(J.Annotation annotation) {
+            JavaType.Class asClass = TypeUtils.asClass(annotation.getType());
+            if (annotationDepth == 0 && asClass != null) {
+                annotations.computeIfAbsent(asClass.getFullyQualifiedName(), t -> new ArrayList<>()).add(annotation);
+            }
+            annotationDepth++;
+            try {
+                return super.visitAnnotation(annotation);
+            } finally {
+                annotationDepth--;
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java.search;
+
+import org.openrewrite.java.tree.J;
+
+import java.util.Arrays;
+
+/**
+ * A bloom filter of the identifiers in the printed source of a compilation unit, so that a search for a type or
+ * method can reject compilation units that don't mention its name without visiting them. It is computed the first
+ * time a compilation unit is searched and kept for as long as that compilation unit is, so every later search of the
+ * same compilation unit only pays for a few hash lookups.
+ * <p>
+ * Identifiers in comments and string literals are included as well, which only makes the filter more conservative.
+ */
+public class SourceTokens {
+    private static final int BITS_PER_IDENTIFIER = 10;
+
+    /**
+     * May contain any identifier, for sources whose identifiers can't be read off the printed source.
+     */
+    private static final SourceTokens ANY = new SourceTokens(new int[0], 0) {
+        @Override
+        public boolean mayContain(String identifier) {
+            return true;
+        }
+    };
+
+    private final long[] bits;
+    private final int mask;
+
+    private SourceTokens(int[] identifierHashes, int identifiers) {
+        int size = Math.max(64, Integer.highestOneBit(Math.max(1, identifiers * BITS_PER_IDENTIFIER) - 1) << 1);
+        this.bits = new long[size >>> 6];
+        this.mask = size - 1;
+        for (int i = 0; i < identifiers; i++) {
+            add(identifierHashes[i]);
+        }
+    }
+
+    /**
+     * @param cu A compilation unit.
+     * @return The identifiers of the compilation unit, computed once for each instance of a compilation unit.
+     */
+    public static SourceTokens of(J.CompilationUnit cu) {
+        return cu.summarize(SourceTokens.class, SourceTokens::build);
+    }
+
+    static SourceTokens build(J.CompilationUnit cu) {
+        String source = cu.print();
+        if (source.contains("\\u")) {
+            // identifiers may be spelled with unicode escapes
+            return ANY;
+        }
+
+        int[] hashes = new int[Math.max(16, source.length() / 16)];
+        int identifiers = 0;
+        for (int i = 0; i < source.length(); ) {
+            if (!Character.isJavaIdentifierStart(source.charAt(i))) {
+                i++;
+                continue;
+            }
+
+            // the same hash as String#hashCode() of the identifier, without making a string of it
+            int hash = 0;
+            for (; i < source.length() && Character.isJavaIdentifierPart(source.charAt(i)); i++) {
+                hash = 31 * hash + source.charAt(i);
+            }
+
+            if (identifiers == hashes.length) {
+                hashes = Arrays.copyOf(hashes, identifiers * 2);
+            }
+            hashes[identifiers++] = hash;
+        }
+
+        // the filter is sized by the number of distinct identifiers, which is far fewer than their occurrences
+        Arrays.sort(hashes, 0, identifiers);
+        int distinct = 0;
+        for (int i = 0; i < identifiers; i++) {
+            if (distinct == 0 || hashes[distinct - 1] != hashes[i]) {
+                hashes[distinct++] = hashes[i];
+            }
+        }
+
+        return new SourceTokens(hashes, distinct);
+    }
+
+    /**
+     * @param identifier A Java identifier.
+     * @return {@code false} if the source certainly doesn't contain the identifier, otherwise {@code true}.
+     */
+    public boolean mayContain(String identifier) {
+        int hash = identifier.hashCode();
+        int second = secondHash(hash);
+        for (int i = 0; i < 3; i++) {
+            int bit = (hash + i * second) & mask;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Any tree that refers to a type by name mentions at least the type's simple name, whether it is imported,
+     * fully qualified or nested in another type.
+     *
+     * @param fullyQualifiedName The fully qualified name of a type.
+     * @return {@code false} if the source certainly doesn't name the type, otherwise {@code true}.
+     */
+    public boolean mayReferToType(String fullyQualifiedName) {
+        int simpleName = Math.max(fullyQualifiedName.lastIndexOf('.'), fullyQualifiedName.lastIndexOf('$')) + 1;
+        return mayContain(fullyQualifiedName.substring(simpleName));
+    }
+
+    private void add(int hash) {
+        int second = secondHash(hash);
+        for (int i = 0; i < 3; i++) {
+            int bit = (hash + i * second) & mask;
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Derives an independent hash from the first, so that the filter can use several hash functions without hashing
+     * the identifier more than once.
+     */
+    private static int secondHash(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash | 1;
+    }
+}
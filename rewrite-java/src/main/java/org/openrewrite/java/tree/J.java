@@ -29,6 +29,7 @@ import org.openrewrite.java.MethodMatcher;
 import org.openrewrite.java.internal.ClassDeclToString;
 import org.openrewrite.java.internal.MethodDeclToString;
 import org.openrewrite.java.internal.PrintJava;
+import org.openrewrite.java.internal.TreeSummaries;
 import org.openrewrite.java.internal.VariableDeclsToString;
 import org.openrewrite.java.search.*;
 
@@ -36,6 +37,7 @@ import java.io.Serializable;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.regex.Matcher;
@@ -1100,6 +1102,12 @@ public interface J extends Serializable, Tree {
     @EqualsAndHashCode(callSuper = false, onlyExplicitlyIncluded = true)
     @Data
     final class CompilationUnit implements J, SourceFile {
+        /**
+         * Summaries that searches computed from compilation units. A refactored compilation unit is a new instance, so
+         * it never sees the summaries of the tree it was refactored from.
+         */
+        private static final TreeSummaries<CompilationUnit> SUMMARIES = new TreeSummaries<>();
+
         @EqualsAndHashCode.Include
         UUID id;
 
@@ -1130,25 +1138,35 @@ public interface J extends Serializable, Tree {
             return styles;
         }
 
+        /**
+         * @param summaryType The type of summary.
+         * @param summarize   Summarizes this tree, if it hasn't been summarized with this type of summary before.
+         * @param <S>         The type of summary.
+         * @return The summary, which is computed once for each instance of a compilation unit.
+         */
+        public <S> S summarize(Class<S> summaryType, Function<CompilationUnit, S> summarize) {
+            return SUMMARIES.get(this, summaryType, summarize);
+        }
+
         @Override
         public <R> R acceptJava(JavaSourceVisitor<R> v) {
             return v.visitCompilationUnit(this);
         }
 
         public boolean hasImport(String clazz) {
-            return new HasImport(clazz).visit(this);
+            return ReferenceSummary.of(this).hasImport(clazz);
         }
 
         public boolean hasType(String clazz) {
-            return new HasType(clazz).visit(this);
+            return ReferenceSummary.of(this).hasType(clazz);
         }
 
         public List<MethodInvocation> findMethodCalls(String signature) {
-            return new FindMethods(signature).visit(this);
+            return ReferenceSummary.of(this).findMethodCalls(signature);
         }
 
         public Set<NameTree> findType(String clazz) {
-            return new FindType(clazz).visit(this);
+            return ReferenceSummary.of(this).findType(clazz);
         }
 
         @JsonIgnore
@@ -1416,8 +1434,10 @@ public interface J extends Serializable, Tree {
          *
          */
         public boolean isFullyQualifiedClassReference(MethodMatcher methodMatcher) {
-            String hopefullyFullyQualifiedMethod = methodMatcher.getTargetTypePattern().pattern() + "." + methodMatcher.getMethodNamePattern().pattern();
-            return isFullyQualifiedClassReference(this, hopefullyFullyQualifiedMethod);
+            String targetType = methodMatcher.getExactTargetType();
+            String methodName = methodMatcher.getExactMethodName();
+            return targetType != null && methodName != null &&
+                    isFullyQualifiedClassReference(this, targetType + "." + methodName);
         }
 
         private boolean isFullyQualifiedClassReference(J.FieldAccess fieldAccess, String className) {
@@ -1522,11 +1542,14 @@ public interface J extends Serializable, Tree {
     @EqualsAndHashCode(callSuper = false, onlyExplicitlyIncluded = true)
     @Getter
     final class Ident implements J, TypeTree, Expression {
-        private static final Map<String, Map<JavaType, IdentFlyweight>> flyweights = HashObjObjMaps.newMutableMap();
+        // threads building identifiers only contend on identifiers with the same name
+        private static final Map<String, Map<JavaType, IdentFlyweight>> flyweights = new ConcurrentHashMap<>();
 
         @EqualsAndHashCode.Include
         UUID id;
 
+        // serialized as the simple name and type that the creator takes
+        @JsonIgnore
         IdentFlyweight ident;
 
         @With
@@ -1549,7 +1572,6 @@ public interface J extends Serializable, Tree {
             return build(id, getSimpleName(), type, formatting);
         }
 
-        @JsonIgnore
         public String getSimpleName() {
             return ident.getSimpleName();
         }
@@ -1568,15 +1590,13 @@ public interface J extends Serializable, Tree {
                                   @JsonProperty("simpleName") String simpleName,
                                   @JsonProperty("type") @Nullable JavaType type,
                                   @JsonProperty("formatting") Formatting formatting) {
-            synchronized (flyweights) {
-                return new Ident(
-                        id,
-                        flyweights
-                                .computeIfAbsent(simpleName, n -> HashObjObjMaps.newMutableMap())
-                                .computeIfAbsent(type, t -> new IdentFlyweight(simpleName, t)),
-                        formatting
-                );
+            // the variants of a name are keyed by type, which may be null, so they can't be held in a concurrent map
+            Map<JavaType, IdentFlyweight> variants = flyweights.computeIfAbsent(simpleName, n -> HashObjObjMaps.newMutableMap());
+            IdentFlyweight ident;
+            synchronized (variants) {
+                ident = variants.computeIfAbsent(type, t -> new IdentFlyweight(simpleName, t));
             }
+            return new Ident(id, ident, formatting);
         }
 
         public static Ident buildClassName(String fullyQualifiedName) {
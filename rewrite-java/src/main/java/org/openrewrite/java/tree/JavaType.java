@@ -17,18 +17,20 @@ package org.openrewrite.java.tree;
 
 import com.fasterxml.jackson.annotation.*;
 import com.koloboke.collect.map.hash.HashObjObjMaps;
-import com.koloboke.collect.set.hash.HashObjSet;
 import com.koloboke.collect.set.hash.HashObjSets;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.With;
+import org.openrewrite.SharedAcrossSources;
 import org.openrewrite.internal.lang.Nullable;
 
 import java.io.Serializable;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Parameter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static java.util.Collections.emptyList;
@@ -41,6 +43,7 @@ import static org.openrewrite.Tree.randomId;
 
 @JsonIdentityInfo(generator = ObjectIdGenerators.IntSequenceGenerator.class, property = "@ref")
 @JsonTypeInfo(use = JsonTypeInfo.Id.MINIMAL_CLASS, property = "@c")
+@SharedAcrossSources
 public interface JavaType extends Serializable {
     boolean deepEquals(@Nullable JavaType type);
 
@@ -141,8 +144,9 @@ public interface JavaType extends Serializable {
 
     @Getter
     class Class extends FullyQualified {
-        // there shouldn't be too many distinct types represented by the same fully qualified name
-        private static final Map<String, HashObjSet<Class>> flyweights = HashObjObjMaps.newMutableMap();
+        // there shouldn't be too many distinct types represented by the same fully qualified name, so threads building
+        // types only contend on the variants of the same name
+        private static final Map<String, Set<Class>> flyweights = new ConcurrentHashMap<>();
 
         public static final Class OBJECT = build("java.lang.Object");
 
@@ -157,6 +161,17 @@ public interface JavaType extends Serializable {
         @Nullable
         private final Class supertype;
 
+        /**
+         * Computed once for each class type, and so shared by every source that refers to the type.
+         */
+        @Getter(AccessLevel.NONE)
+        @Nullable
+        private transient volatile List<Var> visibleSupertypeMembers;
+
+        @Getter(AccessLevel.NONE)
+        @Nullable
+        private transient volatile List<Var> visibleSupertypeMembersExcludingRoot;
+
         private Class(String fullyQualifiedName,
                       List<Var> members,
                       List<JavaType> typeParameters,
@@ -209,9 +224,8 @@ public interface JavaType extends Serializable {
                     members.stream().sorted(comparing(Var::getName)).collect(toList()),
                     typeParameters, interfaces, constructors, supertype);
 
-            synchronized (flyweights) {
-                Set<JavaType.Class> variants = flyweights.computeIfAbsent(fullyQualifiedName, fqn -> HashObjSets.newMutableSet());
-
+            Set<JavaType.Class> variants = flyweights.computeIfAbsent(fullyQualifiedName, fqn -> HashObjSets.newMutableSet());
+            synchronized (variants) {
                 if (relaxedClassTypeMatching) {
                     return variants.stream()
                             .findFirst()
@@ -248,7 +262,7 @@ public interface JavaType extends Serializable {
                 return constructors;
             }
 
-            synchronized (flyweights) {
+            synchronized (this) {
                 List<Method> reflectedConstructors = new ArrayList<>();
                 try {
                     java.lang.Class<?> reflectionClass = java.lang.Class.forName(fullyQualifiedName, false, JavaType.class.getClassLoader());
@@ -275,16 +289,61 @@ public interface JavaType extends Serializable {
             }
         }
 
+        /**
+         * The list is computed once and cached on this type, where subtypes that add no visible members share it, so
+         * unlike the new list that every call used to return, it is unmodifiable. Callers that add to or remove from
+         * it must copy it first.
+         *
+         * @return The non-private members of the supertype hierarchy, nearest supertype first.
+         */
         @JsonIgnore
         public List<JavaType.Var> getVisibleSupertypeMembers() {
-            List<JavaType.Var> members = new ArrayList<>();
-            if (supertype != null) {
-                supertype.getMembers().stream()
-                        .filter(member -> !member.hasFlags(Flag.Private))
-                        .forEach(members::add);
-                members.addAll(supertype.getVisibleSupertypeMembers());
+            List<Var> visible = visibleSupertypeMembers;
+            if (visible == null) {
+                // racing threads compute the same list, so there is no need to lock
+                visible = supertype == null ? emptyList() : supertype.getMembersVisibleToSubtypes();
+                visibleSupertypeMembers = visible;
             }
-            return members;
+            return visible;
+        }
+
+        /**
+         * @return The non-private members of the supertype hierarchy, nearest supertype first, except for those of the
+         * root of the hierarchy, which has no supertype of its own. The list is unmodifiable and cached on this type.
+         */
+        @JsonIgnore
+        public List<JavaType.Var> getVisibleSupertypeMembersExcludingRoot() {
+            List<Var> excludingRoot = visibleSupertypeMembersExcludingRoot;
+            if (excludingRoot == null) {
+                if (supertype == null || supertype.getSupertype() == null) {
+                    excludingRoot = emptyList();
+                } else {
+                    // the root's members come last in both this type's list and the supertype's
+                    List<Var> visible = getVisibleSupertypeMembers();
+                    int rootMembers = supertype.getVisibleSupertypeMembers().size() -
+                            supertype.getVisibleSupertypeMembersExcludingRoot().size();
+                    excludingRoot = visible.subList(0, visible.size() - rootMembers);
+                }
+                visibleSupertypeMembersExcludingRoot = excludingRoot;
+            }
+            return excludingRoot;
+        }
+
+        private List<Var> getMembersVisibleToSubtypes() {
+            List<Var> inherited = getVisibleSupertypeMembers();
+            List<Var> visible = new ArrayList<>(members.size() + inherited.size());
+            for (Var member : members) {
+                if (!member.hasFlags(Flag.Private)) {
+                    visible.add(member);
+                }
+            }
+
+            // share the supertype's list rather than copying it when this type adds nothing to it
+            if (visible.isEmpty()) {
+                return inherited;
+            }
+            visible.addAll(inherited);
+            return Collections.unmodifiableList(visible);
         }
 
         @Override
@@ -354,9 +413,11 @@ public interface JavaType extends Serializable {
 
     @Getter
     class Method implements JavaType {
-        private static final Map<FullyQualified, Map<String, Set<Method>>> flyweights = HashObjObjMaps.newMutableMap();
+        // threads building methods only contend on methods with the same name
+        private static final Map<String, Map<FullyQualified, Set<Method>>> flyweights = new ConcurrentHashMap<>();
 
         @With
+        @Nullable
         private final FullyQualified declaringType;
 
         private final String name;
@@ -367,7 +428,7 @@ public interface JavaType extends Serializable {
         @With
         private final Set<Flag> flags;
 
-        private Method(FullyQualified declaringType, String name, Signature genericSignature, Signature resolvedSignature, List<String> paramNames, Set<Flag> flags) {
+        private Method(@Nullable FullyQualified declaringType, String name, Signature genericSignature, Signature resolvedSignature, List<String> paramNames, Set<Flag> flags) {
             this.declaringType = declaringType;
             this.name = name;
             this.genericSignature = genericSignature;
@@ -377,7 +438,7 @@ public interface JavaType extends Serializable {
         }
 
         @JsonCreator
-        public static Method build(@JsonProperty("declaringType") FullyQualified declaringType,
+        public static Method build(@JsonProperty("declaringType") @Nullable FullyQualified declaringType,
                                    @JsonProperty("name") String name,
                                    @JsonProperty("genericSignature") Signature genericSignature,
                                    @JsonProperty("resolvedSignature") Signature resolvedSignature,
@@ -385,11 +446,11 @@ public interface JavaType extends Serializable {
                                    @JsonProperty("flags") Set<Flag> flags) {
             Method test = new Method(declaringType, name, genericSignature, resolvedSignature, paramNames, flags);
 
-            synchronized (flyweights) {
-                Set<Method> methods = flyweights
-                        .computeIfAbsent(declaringType, dt -> HashObjObjMaps.newMutableMap())
-                        .computeIfAbsent(name, n -> HashObjSets.newMutableSet());
+            // the variants of a name are keyed by declaring type, which may be null, so they can't be held in a concurrent map
+            Map<FullyQualified, Set<Method>> variants = flyweights.computeIfAbsent(name, n -> HashObjObjMaps.newMutableMap());
 
+            synchronized (variants) {
+                Set<Method> methods = variants.computeIfAbsent(declaringType, dt -> HashObjSets.newMutableSet());
                 return methods
                         .stream()
                         .filter(m -> m.deepEquals(test))
@@ -428,7 +489,7 @@ public interface JavaType extends Serializable {
             Method m = (Method) type;
             return paramNames.equals(m.paramNames) &&
                     flags.equals(m.flags) &&
-                    declaringType.deepEquals(m.declaringType) &&
+                    TypeUtils.deepEquals(declaringType, m.declaringType) &&
                     signatureDeepEquals(genericSignature, m.genericSignature) &&
                     signatureDeepEquals(resolvedSignature, m.resolvedSignature);
         }
@@ -27,6 +27,7 @@ import org.eclipse.aether.resolution.VersionRangeRequest;
 import org.eclipse.aether.resolution.VersionRangeResolutionException;
 import org.eclipse.aether.resolution.VersionRangeResult;
 import org.eclipse.aether.version.Version;
+import org.openrewrite.SharedAcrossSources;
 import org.openrewrite.internal.lang.Nullable;
 import org.openrewrite.maven.internal.CachingWorkspaceReader;
 import org.openrewrite.maven.internal.MavenRepositorySystemUtils;
@@ -108,9 +109,13 @@ public class MavenModel {
         String name;
     }
 
+    /**
+     * The same coordinates recur in the dependencies of many modules, so an archive of poms writes each once.
+     */
     @FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
     @Data
     @EqualsAndHashCode
+    @SharedAcrossSources
     public static class ModuleVersionId implements Comparable<ModuleVersionId> {
         @With
         String groupId;
@@ -16,6 +16,7 @@
 package org.openrewrite.maven.tree
 
 import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertSame
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.io.TempDir
 import org.openrewrite.TreeSerializer
@@ -67,4 +68,36 @@ class MavenPomSerializerTest {
 
         assertEquals(m1, deserialized[0])
     }
+
+    @Test
+    fun roundTripArchiveSharesDependencyCoordinates(@TempDir tempDir: Path) {
+        val serializer = TreeSerializer<Maven.Pom>()
+
+        val poms = listOf("a", "b").map { module ->
+            mavenParser.parse(File(tempDir.toFile(), "$module/pom.xml").apply {
+                parentFile.mkdirs()
+                writeText("""
+                    <project>
+                      <modelVersion>4.0.0</modelVersion>
+                      <groupId>com.mycompany.app</groupId>
+                      <artifactId>$module</artifactId>
+                      <version>1</version>
+                      <dependencies>
+                        <dependency>
+                          <groupId>org.junit.jupiter</groupId>
+                          <artifactId>junit-jupiter-api</artifactId>
+                          <version>5.6.2</version>
+                        </dependency>
+                      </dependencies>
+                    </project>
+                """.trimIndent())
+            }.toPath(), tempDir)
+        }
+
+        val archive = serializer.readList(serializer.writeArchive(poms))
+
+        assertEquals(poms, archive)
+        assertEquals(poms.map { it.print() }, archive.map { it.print() })
+        assertSame(archive[0].model.dependencies[0].moduleVersion, archive[1].model.dependencies[0].moduleVersion)
+    }
 }
@@ -45,4 +45,15 @@ class PropertiesFileSerializerTest {
 
         assertEquals(p1, deserialized[0])
     }
+
+    @Test
+    fun roundTripArchive() {
+        val serializer = TreeSerializer<Properties.File>()
+        val sources = PropertiesParser().parse("# comment\nkey=value\n", "other = value\n")
+
+        val deserialized = serializer.readList(serializer.writeArchive(sources))
+
+        assertEquals(sources, deserialized)
+        assertEquals(sources.map { it.print() }, deserialized.map { it.print() })
+    }
 }
@@ -92,6 +92,9 @@ abstract class JavaRefactorCompatibilityKit {
     @Nested
     inner class ReorderMethodArgumentsTck : ReorderMethodArgumentsTest
 
+    @Nested
+    inner class SkipIrrelevantSubtreesTck : SkipIrrelevantSubtreesTest
+
     @Nested
     inner class SpansMultipleLinesTck : SpansMultipleLinesTest
 
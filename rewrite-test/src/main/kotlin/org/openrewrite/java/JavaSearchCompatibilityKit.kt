@@ -41,9 +41,27 @@ abstract class JavaSearchCompatibilityKit {
     @Nested
     inner class FindTypeTck: FindTypeTest
 
+    @Nested
+    inner class ReferenceIndexTck: ReferenceIndexTest
+
     @Nested
     inner class HasImportTck: HasImportTest
 
+    @Nested
+    inner class SourceTokensTck: SourceTokensTest
+
+    @Nested
+    inner class BatchSearchTck: BatchSearchTest
+
+    @Nested
+    inner class ReferenceSummaryTck: ReferenceSummaryTest
+
+    @Nested
+    inner class ParallelSearchTck: ParallelSearchTest
+
+    @Nested
+    inner class NameScopesTck: NameScopesTest
+
     @Nested
     inner class HasTypeTck: HasTypeTest
 }
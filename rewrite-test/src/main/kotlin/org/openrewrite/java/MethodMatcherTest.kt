@@ -15,7 +15,10 @@
  */
 package org.openrewrite.java
 
+import org.junit.jupiter.api.Assertions.assertEquals
 import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNotSame
+import org.junit.jupiter.api.Assertions.assertSame
 import org.junit.jupiter.api.Assertions.assertTrue
 import org.junit.jupiter.api.Disabled
 import org.junit.jupiter.api.Test
@@ -40,6 +43,22 @@ interface MethodMatcherTest {
         assertTrue(typeRegex("com.bar.MyClass foo()").matches("com.bar.MyClass"))
         assertTrue(typeRegex("com.*.MyClass foo()").matches("com.bar.MyClass"))
     }
+    @Test
+    fun matchesTargetTypeWithLiteralDots(jp: JavaParser) {
+        assertTrue(MethodMatcher("*.*.MyClass foo()").matchesTargetType(JavaType.Class.build("com.bar.MyClass")))
+        assertFalse(MethodMatcher("*.*.MyClass foo()").matchesTargetType(JavaType.Class.build("com.MyClass")))
+        assertFalse(MethodMatcher("com.bar.MyClass foo()").matchesTargetType(JavaType.Class.build("comxbarxMyClass")))
+
+        assertFalse(typeRegex("com.bar.MyClass foo()").matches("comxbarxMyClass"))
+    }
+
+    @Test
+    fun sharesCompiledPatternsOfTheSameSignature(jp: JavaParser) {
+        val matcher = MethodMatcher("java.util.List add(int, ..)")
+        assertSame(matcher.argumentPattern, MethodMatcher("java.util.List add(int, ..)").argumentPattern)
+        assertNotSame(matcher.argumentPattern, MethodMatcher("java.util.List add(..)").argumentPattern)
+    }
+
     @Test
     fun matchesMethodName(jp: JavaParser) {
         assertTrue(nameRegex("A foo()").matches("foo"))
@@ -55,6 +74,51 @@ interface MethodMatcherTest {
         assertTrue(argRegex("A foo(java.util.Map)").matches("java.util.Map"))
     }
 
+    @Test
+    fun matchesArgumentsOneAtATime(jp: JavaParser) {
+        val a = jp.parse("""
+            public class A {
+                void foo(int i, int j) {}
+                void test() {
+                    foo(1, 2);
+                }
+            }
+        """)[0]
+
+        assertTrue(a.classes[0].findMethodCalls("A foo(int, int)").isNotEmpty())
+        assertTrue(a.classes[0].findMethodCalls("A foo(.., int)").isNotEmpty())
+        assertTrue(a.classes[0].findMethodCalls("A foo(*, ..)").isNotEmpty())
+        assertTrue(a.classes[0].findMethodCalls("A foo(*)").isEmpty())
+        assertTrue(a.classes[0].findMethodCalls("A foo(int)").isEmpty())
+    }
+
+    @Test
+    fun wildcardArgumentMatchesExactlyOneArgument(jp: JavaParser) {
+        val a = jp.parse("""
+            public class A {
+                void foo() {}
+                void foo(int i, int j) {}
+                void test() {
+                    foo();
+                    foo(1, 2);
+                }
+            }
+        """)[0]
+
+        assertTrue(a.classes[0].findMethodCalls("A foo(*)").isEmpty())
+
+        assertFalse(argRegex("A foo(*)").matches(""))
+        assertFalse(argRegex("A foo(*)").matches("int,int"))
+        assertTrue(argRegex("A foo(*)").matches("int"))
+    }
+
+    @Test
+    fun matchesArgumentsWithDotDotBetweenFormalTypes(jp: JavaParser) {
+        assertTrue(argRegex("A foo(int, .., int)").matches("int,int"))
+        assertTrue(argRegex("A foo(int, .., int)").matches("int,long,int"))
+        assertFalse(argRegex("A foo(int, .., int)").matches("int"))
+    }
+
     @Test
     fun matchesUnqualifiedJavaLangArguments(jp: JavaParser) {
         assertTrue(argRegex("A foo(String)").matches("java.lang.String"))
@@ -148,4 +212,50 @@ interface MethodMatcherTest {
         assertTrue(MethodMatcher("a.A setInteger(Integer)").matches(setIntegerMethod, classDecl))
         assertTrue(MethodMatcher("a.A getInteger()").matches(getIntegerMethod, classDecl))
     }
+
+    @Test
+    fun matcherSetAgreesWithEachMatcher(jp: JavaParser) {
+        val cu = jp.parse("""
+            package a;
+
+            import java.util.*;
+
+            public class A {
+                void foo(int i, String s) {}
+                void test() {
+                    List<String> list = new ArrayList<>();
+                    list.add("a");
+                    list.add(0, "b");
+                    list.toString();
+                    foo(1, "c");
+                    Collections.emptyList();
+                }
+            }
+        """.trimIndent())[0]
+
+        val signatures = listOf(
+                "java.util.List add(..)",
+                "java.util.List add(int, ..)",
+                "java.util.Collection add(Object)",
+                "java.lang.Object toString()",
+                "java.util.ArrayList toString()",
+                "a.A foo(int, String)",
+                "a.A foo(int)",
+                "*..* empty*()",
+                "java.util.* *(..)",
+                "a.A *(..)"
+        )
+        val set = MethodMatcherSet(signatures)
+
+        val invocations = cu.classes[0].findMethodCalls("*..* *(..)")
+        assertEquals(5, invocations.size)
+        for (invocation in invocations) {
+            val expected = signatures.filter { MethodMatcher(it).matches(invocation) }
+            assertEquals(expected, set.matching(invocation), invocation.printTrimmed())
+            assertEquals(expected.isNotEmpty(), set.matches(invocation))
+        }
+
+        assertEquals(listOf("java.util.List add(..)", "java.util.* *(..)"),
+                set.matching(invocations[0]))
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.Refactor
+import org.openrewrite.java.tree.J
+
+interface SkipIrrelevantSubtreesTest {
+    /**
+     * Counts up the int literals below 3, one per cycle, so that a fix takes several cycles.
+     */
+    class CountUpSmallInts(skipIrrelevantSubtrees: Boolean) : JavaIsoRefactorVisitor() {
+        var bigMethodVisits = 0
+
+        init {
+            if (skipIrrelevantSubtrees) {
+                setSkipIrrelevantSubtreesOn()
+            }
+        }
+
+        override fun visitMethod(method: J.MethodDecl): J.MethodDecl {
+            if (method.simpleName == "big") {
+                bigMethodVisits++
+            }
+            return super.visitMethod(method)
+        }
+
+        override fun visitLiteral(literal: J.Literal): J.Literal {
+            val l = super.visitLiteral(literal)
+            val value = l.value
+            return if (value is Int && value < 3) l.withValue(value + 1).withValueSource((value + 1).toString()) else l
+        }
+    }
+
+    @Test
+    fun skipsSubtreesProvenIrrelevantOnLaterCycles(jp: JavaParser) {
+        val a = jp.parse("""
+            public class A {
+                void big(String s) {
+                    String t = s + "a" + s + "b" + s + "c";
+                    t = t.trim() + t.toLowerCase() + t.toUpperCase();
+                    System.out.println(t.length() + s.length());
+                    System.out.println(t.substring(t.length() - s.length()));
+                }
+
+                int small() {
+                    return 0;
+                }
+            }
+        """.trimIndent())[0]
+
+        val skipping = CountUpSmallInts(true)
+        val fixedSkipping = Refactor().visit(skipping).fix(listOf(a), 5).single().fixed!!
+
+        val notSkipping = CountUpSmallInts(false)
+        val fixedNotSkipping = Refactor().visit(notSkipping).fix(listOf(a), 5).single().fixed!!
+
+        assertThat(fixedSkipping.printTrimmed()).contains("return 3;")
+        assertThat(fixedSkipping.printTrimmed()).isEqualTo(fixedNotSkipping.printTrimmed())
+
+        // three cycles count up and a fourth finds nothing left to change
+        assertThat(notSkipping.bigMethodVisits).isEqualTo(4)
+        assertThat(skipping.bigMethodVisits).isEqualTo(1)
+    }
+}
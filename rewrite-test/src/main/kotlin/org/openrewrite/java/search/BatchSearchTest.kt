@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java.search
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.java.JavaParser
+
+interface BatchSearchTest {
+    @Test
+    fun matchesSearchVisitors(jp: JavaParser) {
+        val cus = jp.parse(ReferenceIndexTest.a, ReferenceIndexTest.b)
+
+        val batch = BatchSearch()
+        val collections = batch.findType("java.util.Collections")
+        val maps = batch.findType("java.util.Map")
+        val emptyCollections = batch.findMethods("java.util.Collections empty*()")
+        val emptyLists = batch.findMethods("java.util.Collections emptyList()")
+        val deprecated = batch.findAnnotations("@java.lang.Deprecated")
+        val results = batch.run(cus)
+
+        for (cu in cus) {
+            assertThat(results.get(collections)[cu].orEmpty())
+                    .containsExactlyInAnyOrderElementsOf(FindType("java.util.Collections").visit(cu))
+            assertThat(results.get(emptyCollections)[cu].orEmpty())
+                    .containsExactlyElementsOf(FindMethods("java.util.Collections empty*()").visit(cu))
+            assertThat(results.get(deprecated)[cu].orEmpty())
+                    .containsExactlyElementsOf(FindAnnotations("@java.lang.Deprecated").visit(cu))
+        }
+
+        assertThat(results.get(emptyLists).keys).containsExactly(*cus.toTypedArray())
+        assertThat(results.get(deprecated).keys).containsExactly(cus[0])
+        assertThat(results.get(maps)).isEmpty()
+    }
+
+    @Test
+    fun methodQueryDoesNotMatchInsideItsOwnMatches(jp: JavaParser) {
+        val cu = jp.parse("""
+            public class A {
+                String s = String.valueOf(String.valueOf(1));
+            }
+        """.trimIndent())[0]
+
+        val batch = BatchSearch()
+        val valueOf = batch.findMethods("java.lang.String valueOf(..)")
+        val valueOfInt = batch.findMethods("java.lang.String valueOf(int)")
+        val results = batch.run(listOf(cu))
+
+        assertThat(results.get(valueOf)[cu]).hasSize(1).isEqualTo(cu.findMethodCalls("java.lang.String valueOf(..)"))
+        assertThat(results.get(valueOfInt)[cu]).hasSize(1).isEqualTo(cu.findMethodCalls("java.lang.String valueOf(int)"))
+    }
+
+    @Test
+    fun repeatedQueriesFindEachMatchOnce(jp: JavaParser) {
+        val cu = jp.parse("""
+            import java.util.*;
+            public class A {
+                List<String> l = Collections.emptyList();
+            }
+        """.trimIndent())[0]
+
+        val batch = BatchSearch()
+        val emptyLists = batch.findMethods("java.util.Collections emptyList()")
+        val emptyListsAgain = batch.findMethods("java.util.Collections emptyList()")
+        val results = batch.run(listOf(cu))
+
+        assertThat(results.get(emptyLists)[cu]).hasSize(1).isEqualTo(cu.findMethodCalls("java.util.Collections emptyList()"))
+        assertThat(results.get(emptyListsAgain)[cu]).hasSize(1).isEqualTo(results.get(emptyLists)[cu])
+    }
+}
\ No newline at end of file
@@ -15,10 +15,12 @@
  */
 package org.openrewrite.java.search
 
+import org.assertj.core.api.Assertions.assertThat
 import org.junit.jupiter.api.Assertions.assertEquals
 import org.junit.jupiter.api.Assertions.assertTrue
 import org.junit.jupiter.api.Test
 import org.openrewrite.java.JavaParser
+import org.openrewrite.java.tree.TypeUtils
 
 interface FindInheritedFieldsTest {
 
@@ -57,4 +59,29 @@ interface FindInheritedFieldsTest {
 
         assertTrue(b.classes[0].findInheritedFields("java.util.Set").isEmpty())
     }
+
+    @Test
+    fun visibleSupertypeMembersAreComputedOnce(jp: JavaParser) {
+        val a = """
+            import java.util.*;
+            public class A {
+               protected List list;
+               private Set set;
+            }
+        """
+
+        val cus = jp.parse("public class C extends B { }", "public class B extends A { }", a)
+        val c = TypeUtils.asClass(cus[0].classes[0].type)!!
+
+        assertThat(c.visibleSupertypeMembers.map { it.name }).containsExactly("list")
+        assertThat(c.visibleSupertypeMembers).isSameAs(c.visibleSupertypeMembers)
+
+        // B declares no members of its own, so C shares B's list of visible members
+        assertThat(c.visibleSupertypeMembers).isSameAs(c.supertype!!.visibleSupertypeMembers)
+
+        // java.lang.Object is the root of the hierarchy, so its members are not inherited
+        assertThat(c.visibleSupertypeMembersExcludingRoot.map { it.name }).containsExactly("list")
+        assertThat(c.visibleSupertypeMembersExcludingRoot).isSameAs(c.visibleSupertypeMembersExcludingRoot)
+        assertThat(cus[0].classes[0].findInheritedFields("java.util.List").map { it.name }).containsExactly("list")
+    }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java.search
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.java.JavaParser
+import org.openrewrite.java.tree.J
+
+interface NameScopesTest {
+    @Test
+    fun inSameNameScope(jp: JavaParser) {
+        val a = jp.parse("""
+            public class A extends B {
+                int n;
+                
+                public void foo(int n1) {
+                    for(int n2 = 0;;) {
+                    }
+                }
+                
+                static class B {
+                    public void foo(int n) {
+                    }
+                }
+                
+                interface C {
+                    void foo(int n);
+                }
+                
+                enum D {
+                    D1, D2;
+                    void foo(int n) {}
+                }
+                
+                class E {
+                    void foo(int n) {}
+                }
+            }
+        """.trimIndent())[0]
+
+        val nameScopes = NameScopes.of(a)
+        assertThat(nameScopes).isSameAs(NameScopes.of(a))
+
+        val field = a.classes[0].fields[0]
+        val methodParam = a.classes[0].methods[0].params.params[0]
+        val forInit = a.classes[0].methods[0].body!!.statements.filterIsInstance<J.ForLoop>()[0].control.init
+
+        assertThat(nameScopes.isInSameNameScope(field, methodParam)).isTrue()
+        assertThat(nameScopes.isInSameNameScope(methodParam, field)).isFalse()
+        assertThat(nameScopes.isInSameNameScope(field, forInit)).isTrue()
+        assertThat(nameScopes.isInSameNameScope(field.vars[0], (forInit as J.VariableDecls).vars[0].name)).isTrue()
+
+        val innerClasses = a.classes[0].body.statements.filterIsInstance<J.ClassDecl>()
+        innerClasses.forEachIndexed { n, innerClass ->
+            val innerClassMethodParam = innerClass.methods[0].params.params[0]
+            assertThat(nameScopes.isInSameNameScope(field, innerClassMethodParam)).isEqualTo(n >= 3)
+        }
+    }
+}
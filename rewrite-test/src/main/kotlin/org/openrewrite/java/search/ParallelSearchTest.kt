@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java.search
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.ParallelSearch
+import org.openrewrite.java.JavaParser
+import java.util.concurrent.ForkJoinPool
+
+interface ParallelSearchTest {
+    @Test
+    fun matchesSerialSearch(jp: JavaParser) {
+        val cus = jp.parse(*(0 until 40).map { i ->
+            """
+                import java.util.*;
+                public class A$i {
+                    ${if (i % 3 == 0) "List<String> list = Collections.emptyList();" else "Object o = Collections.emptySet();"}
+                }
+            """.trimIndent()
+        }.toTypedArray())
+
+        val pool = ForkJoinPool(4)
+        try {
+            val findMethods = FindMethods("java.util.Collections empty*()")
+            assertThat(ParallelSearch.visit(findMethods, cus, pool)).containsExactlyElementsOf(findMethods.visit(cus))
+
+            // cursored, so each thread keeps a cursor of its own
+            val findType = FindType("java.util.List")
+            assertThat(ParallelSearch.visit(findType, cus, pool))
+                    .hasSize(14)
+                    .containsExactlyInAnyOrderElementsOf(findType.visit(cus))
+
+            assertThat(ParallelSearch.visit(HasType("java.util.Set"), cus, pool)).isFalse()
+            assertThat(ParallelSearch.visit(findMethods, emptyList(), pool)).isEmpty()
+        } finally {
+            pool.shutdown()
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java.search
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.java.JavaParser
+
+interface ReferenceIndexTest {
+    companion object {
+        const val a = """
+            import java.util.*;
+            @Deprecated
+            public class A {
+                List<String> list = Collections.emptyList();
+                String[] strings;
+
+                @Deprecated
+                void foo() {
+                    Set<String> set = Collections.emptySet();
+                    list.add("a");
+                }
+            }
+        """
+
+        const val b = """
+            import java.util.*;
+            public class B {
+                Object o = Collections.emptyList();
+            }
+        """
+    }
+
+    @Test
+    fun matchesSearchVisitors(jp: JavaParser) {
+        val cus = jp.parse(a, b)
+        val index = ReferenceIndex(cus)
+
+        for (cu in cus) {
+            assertThat(index.findType("java.util.Collections")[cu].orEmpty())
+                    .containsExactlyInAnyOrderElementsOf(FindType("java.util.Collections").visit(cu))
+            assertThat(index.findMethods("java.util.Collections empty*()")[cu].orEmpty())
+                    .containsExactlyElementsOf(FindMethods("java.util.Collections empty*()").visit(cu))
+            assertThat(index.findFields("java.lang.String")[cu].orEmpty())
+                    .containsExactlyElementsOf(FindFields("java.lang.String").visit(cu))
+            assertThat(index.findAnnotations("@java.lang.Deprecated")[cu].orEmpty())
+                    .containsExactlyElementsOf(FindAnnotations("@java.lang.Deprecated").visit(cu))
+        }
+
+        assertThat(index.findMethods("java.util.Collections emptyList()").keys).containsExactly(*cus.toTypedArray())
+        assertThat(index.findMethods("java.util.List add(..)").keys).containsExactly(cus[0])
+        assertThat(index.findType("java.util.Set").keys).containsExactly(cus[0])
+        assertThat(index.findAnnotations("@java.lang.Deprecated")[cus[0]]).hasSize(2)
+        assertThat(index.findType("java.util.Map")).isEmpty()
+    }
+
+    @Test
+    fun findMethodsSkipsMatchesInsideMatches(jp: JavaParser) {
+        val cu = jp.parse("""
+            public class A {
+                String s = String.valueOf(String.valueOf(1));
+                String t = String.valueOf(2);
+            }
+        """.trimIndent())[0]
+
+        val found = ReferenceIndex(listOf(cu)).findMethods("java.lang.String valueOf(..)")[cu]!!
+        assertThat(found).hasSize(2).containsExactlyElementsOf(FindMethods("java.lang.String valueOf(..)").visit(cu))
+    }
+}
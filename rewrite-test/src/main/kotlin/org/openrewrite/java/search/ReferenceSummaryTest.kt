@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java.search
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.java.JavaParser
+import org.openrewrite.java.MethodMatcherSet
+
+interface ReferenceSummaryTest {
+    @Test
+    fun matchesSearchVisitors(jp: JavaParser) {
+        val cu = jp.parse("""
+            import java.util.*;
+            import java.io.File;
+            public class A {
+                List<String> list = Collections.emptyList();
+                String s = String.valueOf(String.valueOf(1));
+            }
+        """.trimIndent())[0]
+
+        val summary = ReferenceSummary.of(cu)
+        assertThat(summary).isSameAs(ReferenceSummary.of(cu))
+
+        for (clazz in listOf("java.util.List", "java.util.Map", "java.io.File", "java.lang.String", "java.nio.file.Path")) {
+            assertThat(summary.hasImport(clazz)).isEqualTo(HasImport(clazz).visit(cu))
+            assertThat(summary.hasType(clazz)).isEqualTo(HasType(clazz).visit(cu))
+            assertThat(summary.findType(clazz)).containsExactlyInAnyOrderElementsOf(FindType(clazz).visit(cu))
+        }
+
+        for (signature in listOf("java.lang.String valueOf(..)", "java.lang.String valueOf(int)",
+                "java.util.Collections emptyList()", "*..* *(..)")) {
+            assertThat(summary.findMethodCalls(signature)).containsExactlyElementsOf(FindMethods(signature).visit(cu))
+        }
+    }
+
+    @Test
+    fun fieldsAnnotationsAndManyMethods(jp: JavaParser) {
+        val cu = jp.parse("""
+            import java.util.*;
+            @Deprecated
+            public class A {
+                String[] strings;
+
+                @Deprecated
+                void foo() {
+                    String s = String.valueOf(String.valueOf(1));
+                    List<String> list = Collections.emptyList();
+                }
+            }
+        """.trimIndent())[0]
+
+        val summary = ReferenceSummary.of(cu)
+        assertThat(summary.findFields("java.lang.String")).containsExactlyElementsOf(FindFields("java.lang.String").visit(cu))
+        assertThat(summary.findAnnotations("@java.lang.Deprecated"))
+                .hasSize(2)
+                .containsExactlyElementsOf(FindAnnotations("@java.lang.Deprecated").visit(cu))
+
+        val signatures = listOf("java.lang.String valueOf(..)", "java.util.Collections emptyList()", "java.util.Map *(..)")
+        val found = summary.findMethodCalls(MethodMatcherSet(signatures))
+        assertThat(found.keys).containsExactly("java.lang.String valueOf(..)", "java.util.Collections emptyList()")
+        for (signature in found.keys) {
+            assertThat(found[signature]).containsExactlyElementsOf(FindMethods(signature).visit(cu))
+        }
+    }
+}
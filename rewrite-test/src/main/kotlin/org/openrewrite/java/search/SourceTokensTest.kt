@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.java.search
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.java.JavaParser
+
+interface SourceTokensTest {
+    @Test
+    fun rejectsSourcesThatDontMentionAName(jp: JavaParser) {
+        val cu = jp.parse("""
+            import java.util.*;
+            public class A {
+                List<String> list = Collections.emptyList();
+            }
+        """.trimIndent())[0]
+
+        val tokens = SourceTokens.of(cu)
+        assertThat(tokens.mayContain("Collections")).isTrue()
+        assertThat(tokens.mayContain("emptyList")).isTrue()
+        assertThat(tokens.mayContain("emptySet")).isFalse()
+        assertThat(tokens.mayReferToType("java.util.List")).isTrue()
+        assertThat(tokens.mayReferToType("java.util.Map")).isFalse()
+
+        assertThat(cu.findType("java.util.List")).isNotEmpty()
+        assertThat(cu.hasType("java.util.Map")).isFalse()
+        assertThat(cu.findMethodCalls("java.util.Collections emptyList()")).hasSize(1)
+        assertThat(cu.findMethodCalls("java.util.Collections emptySet()")).isEmpty()
+    }
+
+    @Test
+    fun summarizedOncePerCompilationUnit(jp: JavaParser) {
+        val cu = jp.parse("public class A {}")[0]
+
+        assertThat(SourceTokens.of(cu)).isSameAs(SourceTokens.of(cu))
+        assertThat(SourceTokens.of(cu.withClasses(ArrayList(cu.classes)))).isNotSameAs(SourceTokens.of(cu))
+    }
+
+    @Test
+    fun unicodeEscapesMayContainAnyName(jp: JavaParser) {
+        val cu = jp.parse("""
+            public class A {
+                String s = "\u0041";
+            }
+        """.trimIndent())[0]
+
+        assertThat(SourceTokens.of(cu).mayContain("Bar")).isTrue()
+    }
+}
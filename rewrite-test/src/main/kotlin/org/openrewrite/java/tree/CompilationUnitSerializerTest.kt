@@ -48,6 +48,7 @@ interface CompilationUnitSerializerTest {
         val aDeser = serializer.read(aBytes)
 
         assertEquals(a, aDeser)
+        assertEquals(a.print(), aDeser.print())
         assertTrue(a.classes[0].type === aDeser.classes[0].type)
         assertTrue((a.classes[0].fields + aDeser.classes[0].fields)
                 .map { it.vars[0].initializer?.type }
@@ -61,4 +62,38 @@ interface CompilationUnitSerializerTest {
         val aBytes = serializer.write(listOf(a))
         assertEquals(a, serializer.readList(aBytes)[0])
     }
+
+    @Test
+    fun roundTripArchiveSharesTypesAcrossSources(jp: JavaParser) {
+        val sources = jp.parse(aSource, """
+            public class B {
+                A a = new A().foo();
+            }
+        """)
+
+        val archive = serializer.readLazy(serializer.writeArchive(sources))
+
+        assertEquals(sources, archive)
+        assertTrue(archive[0].classes[0].type === archive[1].classes[0].fields[0].vars[0].type)
+        assertTrue(archive[0].classes[0].type === sources[0].classes[0].type)
+    }
+
+    @Test
+    fun archiveWritesSharedTypesOnceAcrossSources(jp: JavaParser) {
+        val widget = """
+            public class Widget {
+                long widgetSerialNumber;
+            }
+        """
+        val users = (1..10).map { "public class User$it { Widget w; }" }
+        val sources = jp.parse(widget, *users.toTypedArray())
+
+        fun occurrences(archive: ByteArray) =
+                String(archive, Charsets.ISO_8859_1).split("widgetSerialNumber").size - 1
+
+        // each user's class type refers to the widget's class type in the archive's tables, rather than repeating it
+        val archive = serializer.writeArchive(sources)
+        assertEquals(occurrences(serializer.writeArchive(sources.take(2))), occurrences(archive))
+        assertEquals(sources, serializer.readLazy(archive))
+    }
 }
@@ -84,6 +84,16 @@ interface JavaTypeTest {
         assertEquals("", c.packageName)
     }
 
+    @Test
+    fun methodWithoutDeclaringTypeIsShared(jp: JavaParser) {
+        val signature = JavaType.Method.Signature(JavaType.Primitive.Void, emptyList())
+        val m1 = JavaType.Method.build(null, "foo", signature, signature, emptyList(), emptySet())
+        val m2 = JavaType.Method.build(null, "foo", signature, signature, emptyList(), emptySet())
+
+        assertNull(m1.declaringType)
+        assertTrue(m1 === m2)
+    }
+
     @Test
     fun selfReferentialTypeIsShared(jp: JavaParser) {
         val a = jp.parse("public class A { A a; }")[0]
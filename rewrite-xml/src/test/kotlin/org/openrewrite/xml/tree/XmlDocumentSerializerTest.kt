@@ -45,4 +45,15 @@ class XmlDocumentSerializerTest {
 
         assertEquals(x1, deserialized[0])
     }
+
+    @Test
+    fun roundTripArchive() {
+        val serializer = TreeSerializer<Xml.Document>()
+        val sources = XmlParser().parse("<root>\n  <child attr=\"value\"/>\n</root>", "<another>\n  <!-- comment -->\n  <child>text</child>\n</another>")
+
+        val deserialized = serializer.readList(serializer.writeArchive(sources))
+
+        assertEquals(sources, deserialized)
+        assertEquals(sources.map { it.print() }, deserialized.map { it.print() })
+    }
 }
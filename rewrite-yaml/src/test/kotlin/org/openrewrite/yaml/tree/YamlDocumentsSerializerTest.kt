@@ -45,4 +45,15 @@ class YamlDocumentsSerializerTest {
 
         assertEquals(y1, deserialized[0])
     }
+
+    @Test
+    fun roundTripArchive() {
+        val serializer = TreeSerializer<Yaml.Documents>()
+        val sources = YamlParser().parse("key: value\nlist:\n  - a\n  - b\n", "---\nother: value\n")
+
+        val deserialized = serializer.readList(serializer.writeArchive(sources))
+
+        assertEquals(sources, deserialized)
+        assertEquals(sources.map { it.print() }, deserialized.map { it.print() })
+    }
 }